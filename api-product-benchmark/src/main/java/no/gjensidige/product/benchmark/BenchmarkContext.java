@@ -0,0 +1,99 @@
+package no.gjensidige.product.benchmark;
+
+import no.gjensidige.product.ProductApp;
+import no.gjensidige.product.entity.Product;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * BenchmarkContext
+ *
+ * Boots ProductApp against its own in-memory H2 database, so benchmarks can exercise the
+ * real services and repositories. Load tests start it with the web server.
+ *
+ */
+final class BenchmarkContext implements AutoCloseable {
+
+    private static final int SEED_BATCH_SIZE = 10_000;
+
+    private final ConfigurableApplicationContext context;
+
+    private BenchmarkContext(ConfigurableApplicationContext context) {
+        this.context = context;
+    }
+
+    /**
+     * Properties are passed as command line arguments so they override application.properties.
+     */
+    static BenchmarkContext start(String... properties) {
+        return start(WebApplicationType.NONE, properties);
+    }
+
+    /**
+     * Same as start, but with the embedded web server listening on a random port.
+     */
+    static BenchmarkContext startServer(String... properties) {
+        List<String> args = new ArrayList<>(List.of(properties));
+        args.add("server.port=0");
+        return start(WebApplicationType.SERVLET, args.toArray(new String[0]));
+    }
+
+    private static BenchmarkContext start(WebApplicationType type, String... properties) {
+        List<String> args = new ArrayList<>();
+        args.add("--spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        args.add("--spring.main.banner-mode=off");
+        args.add("--logging.level.root=WARN");
+        for (String property : properties) {
+            args.add("--" + property);
+        }
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(ProductApp.class)
+                .web(type)
+                .run(args.toArray(new String[0]));
+        return new BenchmarkContext(context);
+    }
+
+    int port() {
+        return context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+    }
+
+    <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /**
+     * Inserts size random products with consecutive ids using plain JDBC batches, bypassing
+     * the services, and moves product_seq past them afterwards.
+     */
+    void seed(int size, long seed) {
+        JdbcTemplate jdbcTemplate = bean(JdbcTemplate.class);
+        Random random = new Random(seed);
+        long firstId = jdbcTemplate.queryForObject("select coalesce(max(id), 0) + 1 from product", Long.class);
+
+        List<Object[]> batch = new ArrayList<>(SEED_BATCH_SIZE);
+        for (int i = 0; i < size; i++) {
+            Product p = Products.random(random, firstId + i);
+            batch.add(new Object[]{p.getId(), p.getProductName(), p.getUnitPriceMinor(), p.getCategory(), p.getImageLink(), p.getNumberSold(), p.getUnitCostMinor()});
+
+            if (batch.size() == SEED_BATCH_SIZE || i == size - 1) {
+                jdbcTemplate.batchUpdate("insert into product(id, product_name, unit_price_minor, category, image_link, number_sold, unit_cost_minor) "
+                        + "values (?, ?, ?, ?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+
+        jdbcTemplate.execute("alter sequence product_seq restart with (select max(id) + 51 from product)");
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
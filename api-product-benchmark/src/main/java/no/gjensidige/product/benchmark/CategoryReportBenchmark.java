@@ -0,0 +1,52 @@
+package no.gjensidige.product.benchmark;
+
+import no.gjensidige.product.model.CategoryReport;
+import no.gjensidige.product.service.ReportService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CategoryReportBenchmark
+ *
+ * ReportService.generateCategoryReports against an H2 product table with a handful and
+ * with thousands of categories. The products are spread evenly over the categories.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class CategoryReportBenchmark {
+
+    @Param({"100000", "1000000"})
+    int size;
+
+    @Param({"5", "5000"})
+    int categories;
+
+    BenchmarkContext context;
+    ReportService reportService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("report.cache.enabled=false");
+        context.seed(size, 42);
+        context.bean(JdbcTemplate.class).update("update product set category = 'Category ' || mod(id, ?)", categories);
+        reportService = context.bean(ReportService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<CategoryReport> generateCategoryReports() {
+        return reportService.generateCategoryReports();
+    }
+}
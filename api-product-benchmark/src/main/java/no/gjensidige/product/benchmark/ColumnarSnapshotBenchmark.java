@@ -0,0 +1,75 @@
+package no.gjensidige.product.benchmark;
+
+import no.gjensidige.product.entity.Product;
+import no.gjensidige.product.service.FiguresAccumulator;
+import no.gjensidige.product.service.ProductSnapshot;
+import no.gjensidige.product.service.ReportAccumulator;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ColumnarSnapshotBenchmark
+ *
+ * Scans the same products as an entity list with ReportAccumulator and as the off-heap
+ * columns of ProductSnapshot. The heap retained by the list and the direct memory held by
+ * the snapshot are printed once per trial, the GC profiler shows the allocation per scan.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g", "-XX:MaxDirectMemorySize=1g"})
+public class ColumnarSnapshotBenchmark {
+
+    @Param({"1000000", "10000000"})
+    int size;
+
+    List<Product> products;
+    ProductSnapshot snapshot;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        long before = usedHeap();
+        products = Products.random(size, 42);
+        long entityHeap = usedHeap() - before;
+
+        before = usedHeap();
+        snapshot = ProductSnapshot.of(products);
+        long snapshotHeap = usedHeap() - before;
+
+        System.out.printf("%n%d products: entity list retains %d MB of heap, snapshot %d MB of heap "
+                        + "and %d MB of direct memory (%d MB direct in use)%n",
+                size, entityHeap >> 20, snapshotHeap >> 20, snapshot.offHeapBytes() >> 20, directMemory() >> 20);
+    }
+
+    @Benchmark
+    public ReportAccumulator entityList() {
+        return ReportAccumulator.of(products);
+    }
+
+    @Benchmark
+    public FiguresAccumulator columnar() {
+        return snapshot.summarize();
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long directMemory() {
+        return ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+                .filter(pool -> pool.getName().equals("direct"))
+                .mapToLong(BufferPoolMXBean::getMemoryUsed)
+                .sum();
+    }
+}
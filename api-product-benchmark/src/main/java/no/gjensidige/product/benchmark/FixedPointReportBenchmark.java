@@ -0,0 +1,139 @@
+package no.gjensidige.product.benchmark;
+
+import no.gjensidige.product.entity.Product;
+import no.gjensidige.product.service.ReportAccumulator;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FixedPointReportBenchmark
+ *
+ * The single-pass report kernel on the product model before and after the switch to
+ * fixed point: BigInteger counts and boxed Double prices summed in compensated floating
+ * point, against long counts and minor units summed with overflow checks. Both lists hold
+ * the same figures.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class FixedPointReportBenchmark {
+
+    @Param({"10000", "1000000"})
+    int size;
+
+    List<Product> products;
+    List<FloatingPointProduct> floatingPointProducts;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        products = Products.random(size, 42);
+        floatingPointProducts = new ArrayList<>(size);
+        for (Product product : products) {
+            floatingPointProducts.add(new FloatingPointProduct(product));
+        }
+    }
+
+    @Benchmark
+    public FloatingPointAccumulator floatingPoint() {
+        FloatingPointAccumulator accumulator = new FloatingPointAccumulator();
+        for (FloatingPointProduct product : floatingPointProducts) {
+            accumulator.accept(product);
+        }
+        return accumulator;
+    }
+
+    @Benchmark
+    public ReportAccumulator fixedPoint() {
+        return ReportAccumulator.of(products);
+    }
+
+    /**
+     * The numeric fields of Product as they were.
+     */
+    static final class FloatingPointProduct {
+
+        final Long id;
+        final Double unitCost;
+        final Double unitPrice;
+        final BigInteger numberSold;
+
+        FloatingPointProduct(Product product) {
+            this.id = product.getId();
+            this.unitCost = product.getUnitCost().doubleValue();
+            this.unitPrice = product.getUnitPrice().doubleValue();
+            this.numberSold = BigInteger.valueOf(product.getNumberSold());
+        }
+    }
+
+    /**
+     * ReportAccumulator as it was, with Neumaier-compensated double sums.
+     */
+    static final class FloatingPointAccumulator {
+
+        long count;
+        double turnoverSum;
+        double turnoverCompensation;
+        double costSum;
+        double costCompensation;
+
+        FloatingPointProduct highestMarginProduct;
+        double highestMargin;
+        FloatingPointProduct lowestMarginProduct;
+        double lowestMargin;
+
+        FloatingPointProduct mostSoldProduct;
+        BigInteger mostSold;
+        FloatingPointProduct leastSoldProduct;
+        BigInteger leastSold;
+
+        void accept(FloatingPointProduct product) {
+            BigInteger numberSold = product.numberSold != null ? product.numberSold : BigInteger.ZERO;
+            double unitPrice = product.unitPrice != null ? product.unitPrice : 0;
+            double unitCost = product.unitCost != null ? product.unitCost : 0;
+
+            double sold = numberSold.doubleValue();
+            double turnover = sold * unitPrice;
+            double cost = sold * unitCost;
+            double margin = turnover - cost;
+
+            double t = turnoverSum + turnover;
+            turnoverCompensation += Math.abs(turnoverSum) >= Math.abs(turnover) ? (turnoverSum - t) + turnover : (turnover - t) + turnoverSum;
+            turnoverSum = t;
+            double c = costSum + cost;
+            costCompensation += Math.abs(costSum) >= Math.abs(cost) ? (costSum - c) + cost : (cost - c) + costSum;
+            costSum = c;
+
+            if (count == 0) {
+                highestMarginProduct = lowestMarginProduct = mostSoldProduct = leastSoldProduct = product;
+                highestMargin = lowestMargin = margin;
+                mostSold = leastSold = numberSold;
+            } else {
+                if (margin > highestMargin) {
+                    highestMargin = margin;
+                    highestMarginProduct = product;
+                }
+                if (margin < lowestMargin) {
+                    lowestMargin = margin;
+                    lowestMarginProduct = product;
+                }
+                if (numberSold.compareTo(mostSold) > 0) {
+                    mostSold = numberSold;
+                    mostSoldProduct = product;
+                }
+                if (numberSold.compareTo(leastSold) < 0) {
+                    leastSold = numberSold;
+                    leastSoldProduct = product;
+                }
+            }
+            count++;
+        }
+    }
+}
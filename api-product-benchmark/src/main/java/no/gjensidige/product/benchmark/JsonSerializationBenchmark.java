@@ -0,0 +1,71 @@
+package no.gjensidige.product.benchmark;
+
+import no.gjensidige.product.entity.Product;
+import no.gjensidige.product.model.FinancialReport;
+import no.gjensidige.product.service.ReportAccumulator;
+import org.openjdk.jmh.annotations.*;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JsonSerializationBenchmark
+ *
+ * Serializes a Product, a list of {listSize} products and a FinancialReport to JSON bytes
+ * with the JsonMapper the application configures for its HTTP responses.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    @Param({"1000"})
+    int listSize;
+
+    BenchmarkContext context;
+    JsonMapper jsonMapper;
+    Product product;
+    List<Product> products;
+    FinancialReport report;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        jsonMapper = context.bean(JsonMapper.class);
+
+        Random random = new Random(42);
+        products = new ArrayList<>(listSize);
+        for (int i = 0; i < listSize; i++) {
+            products.add(Products.random(random, i + 1L));
+        }
+        product = products.get(0);
+        report = ReportAccumulator.of(products).toReport();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] product() {
+        return jsonMapper.writeValueAsBytes(product);
+    }
+
+    @Benchmark
+    public byte[] productList() {
+        return jsonMapper.writeValueAsBytes(products);
+    }
+
+    @Benchmark
+    public byte[] financialReport() {
+        return jsonMapper.writeValueAsBytes(report);
+    }
+}
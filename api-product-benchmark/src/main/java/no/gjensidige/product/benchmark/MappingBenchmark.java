@@ -0,0 +1,73 @@
+package no.gjensidige.product.benchmark;
+
+import no.gjensidige.product.dto.ProductDTO;
+import no.gjensidige.product.entity.Product;
+import no.gjensidige.product.mapper.ProductMapper;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MappingBenchmark
+ *
+ * Throughput of ProductDTO/Product mapping with the reflective ModelMapper the service used
+ * before and the explicit ProductMapper. Run with -prof gc to compare allocation rates.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappingBenchmark {
+
+    ModelMapper modelMapper;
+    ProductMapper productMapper;
+    Product product;
+    ProductDTO productDTO;
+    Product target;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        modelMapper = new ModelMapper();
+        productMapper = new ProductMapper();
+        product = Products.random(new Random(42), 1L);
+        productDTO = productMapper.toDTO(product);
+        target = Products.random(new Random(7), 1L);
+    }
+
+    @Benchmark
+    public ProductDTO modelMapperToDTO() {
+        return modelMapper.map(product, ProductDTO.class);
+    }
+
+    @Benchmark
+    public ProductDTO productMapperToDTO() {
+        return productMapper.toDTO(product);
+    }
+
+    @Benchmark
+    public Product modelMapperToEntity() {
+        return modelMapper.map(productDTO, Product.class);
+    }
+
+    @Benchmark
+    public Product productMapperToEntity() {
+        return productMapper.toEntity(productDTO);
+    }
+
+    @Benchmark
+    public Product modelMapperMerge() {
+        modelMapper.map(productDTO, target);
+        return target;
+    }
+
+    @Benchmark
+    public Product productMapperMerge() {
+        productMapper.merge(productDTO, target);
+        return target;
+    }
+}
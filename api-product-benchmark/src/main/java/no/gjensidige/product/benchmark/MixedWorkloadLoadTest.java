@@ -0,0 +1,326 @@
+package no.gjensidige.product.benchmark;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * MixedWorkloadLoadTest
+ *
+ * Closed-loop HTTP load test against an embedded ProductApp on H2. Every client picks the
+ * next operation from a weighted mix of get (GET /products/{id}), list (GET /products/page),
+ * create, update (partial PUT), delete (of a product created by the test) and report
+ * (GET /reports/financial). Latencies are recorded per operation in HdrHistogram and
+ * printed as percentiles together with the throughput; the same numbers are written as
+ * JSON to result.
+ *
+ * With thresholds=<file> the run fails (exit code 1) when an operation is slower or less
+ * frequent than its limits, see loadtest-thresholds.properties. With baseline=<result json>
+ * it also fails when p99 latency or throughput of an operation is more than tolerance
+ * (default 0.25, i.e. 25%) worse than in the baseline run.
+ *
+ * Other arguments are key=value pairs: clients (32), duration in seconds (30), warmup in
+ * seconds (10), products (10000) and mix (get:60,list:10,create:8,update:12,delete:5,report:5).
+ *
+ * Being closed-loop, a slow server also lowers the offered load, so compare throughput
+ * together with the percentiles.
+ *
+ */
+public class MixedWorkloadLoadTest {
+
+    private static final String[] OPERATIONS = {"get", "list", "create", "update", "delete", "report"};
+
+    private static final JsonMapper JSON = JsonMapper.builder().build();
+
+    public static void main(String[] args) throws Exception {
+        int clients = intArg(args, "clients", 32);
+        int duration = intArg(args, "duration", 30);
+        int warmup = intArg(args, "warmup", 10);
+        int products = intArg(args, "products", 10_000);
+        Map<String, Integer> mix = parseMix(stringArg(args, "mix", "get:60,list:10,create:8,update:12,delete:5,report:5"));
+
+        Map<String, Stats> stats = new LinkedHashMap<>();
+        for (String operation : OPERATIONS) {
+            stats.put(operation, new Stats());
+        }
+
+        try (BenchmarkContext context = BenchmarkContext.startServer()) {
+            context.seed(products, 42);
+            Workload workload = new Workload("http://localhost:" + context.port(), products, mix, stats);
+
+            workload.drive(clients, warmup);
+            stats.values().forEach(Stats::reset);
+
+            workload.drive(clients, duration);
+        }
+
+        Map<String, Map<String, Object>> results = new LinkedHashMap<>();
+        System.out.printf("%d clients, %d s (+%d s warmup), %d products, mix %s%n", clients, duration, warmup, products, mix);
+        System.out.printf("%-8s %9s %9s %9s %9s %9s %9s %9s %7s%n", "op", "count", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "errors");
+        for (Map.Entry<String, Stats> entry : stats.entrySet()) {
+            Map<String, Object> result = entry.getValue().toResult(duration);
+            if ((long) result.get("count") == 0) {
+                continue;
+            }
+            results.put(entry.getKey(), result);
+            System.out.printf("%-8s %9d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f %7d%n", entry.getKey(), result.get("count"), result.get("throughput"),
+                    result.get("p50"), result.get("p90"), result.get("p99"), result.get("p99.9"), result.get("max"), result.get("errors"));
+        }
+
+        String resultFile = stringArg(args, "result", "loadtest-result.json");
+        JSON.writerWithDefaultPrettyPrinter().writeValue(new File(resultFile), results);
+        System.out.println("Results written to " + resultFile);
+
+        List<String> violations = new ArrayList<>();
+        String thresholds = stringArg(args, "thresholds", null);
+        if (thresholds != null) {
+            violations.addAll(checkThresholds(results, thresholds));
+        }
+        String baseline = stringArg(args, "baseline", null);
+        if (baseline != null) {
+            violations.addAll(checkBaseline(results, baseline, Double.parseDouble(stringArg(args, "tolerance", "0.25"))));
+        }
+
+        if (!violations.isEmpty()) {
+            violations.forEach(violation -> System.out.println("REGRESSION " + violation));
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Limits are <operation>.p99.ms (highest allowed p99 latency), <operation>.min.rps
+     * (lowest allowed throughput) and <operation>.max.errors.
+     */
+    static List<String> checkThresholds(Map<String, Map<String, Object>> results, String file) throws IOException {
+        Properties limits = new Properties();
+        try (Reader reader = new FileReader(file)) {
+            limits.load(reader);
+        }
+
+        List<String> violations = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Object>> entry : results.entrySet()) {
+            String operation = entry.getKey();
+            Map<String, Object> result = entry.getValue();
+
+            String p99 = limits.getProperty(operation + ".p99.ms");
+            if (p99 != null && (double) result.get("p99") > Double.parseDouble(p99)) {
+                violations.add(String.format("%s p99 %.2f ms > %s ms", operation, result.get("p99"), p99));
+            }
+            String minRps = limits.getProperty(operation + ".min.rps");
+            if (minRps != null && (double) result.get("throughput") < Double.parseDouble(minRps)) {
+                violations.add(String.format("%s throughput %.1f req/s < %s req/s", operation, result.get("throughput"), minRps));
+            }
+            String maxErrors = limits.getProperty(operation + ".max.errors");
+            if (maxErrors != null && (long) result.get("errors") > Long.parseLong(maxErrors)) {
+                violations.add(String.format("%s errors %d > %s", operation, result.get("errors"), maxErrors));
+            }
+        }
+        return violations;
+    }
+
+    static List<String> checkBaseline(Map<String, Map<String, Object>> results, String file, double tolerance) {
+        JsonNode baseline = JSON.readTree(new File(file));
+
+        List<String> violations = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Object>> entry : results.entrySet()) {
+            JsonNode before = baseline.get(entry.getKey());
+            if (before == null) {
+                continue;
+            }
+
+            double p99 = (double) entry.getValue().get("p99");
+            double throughput = (double) entry.getValue().get("throughput");
+            if (p99 > before.get("p99").asDouble() * (1 + tolerance)) {
+                violations.add(String.format("%s p99 %.2f ms vs %.2f ms in baseline", entry.getKey(), p99, before.get("p99").asDouble()));
+            }
+            if (throughput < before.get("throughput").asDouble() * (1 - tolerance)) {
+                violations.add(String.format("%s throughput %.1f req/s vs %.1f req/s in baseline", entry.getKey(), throughput, before.get("throughput").asDouble()));
+            }
+        }
+        return violations;
+    }
+
+    private static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String part : mix.split(",")) {
+            String[] weight = part.split(":");
+            if (!List.of(OPERATIONS).contains(weight[0])) {
+                throw new IllegalArgumentException("Unknown operation " + weight[0]);
+            }
+            weights.put(weight[0], Integer.parseInt(weight[1]));
+        }
+        return weights;
+    }
+
+    private static int intArg(String[] args, String name, int defaultValue) {
+        return Integer.parseInt(stringArg(args, name, String.valueOf(defaultValue)));
+    }
+
+    private static String stringArg(String[] args, String name, String defaultValue) {
+        for (String arg : args) {
+            if (arg.startsWith(name + "=")) {
+                return arg.substring(name.length() + 1);
+            }
+        }
+        return defaultValue;
+    }
+
+    private static final class Workload {
+
+        private final String baseUrl;
+        private final int products;
+        private final String[] weightedOperations;
+        private final Map<String, Stats> stats;
+        private final HttpClient client;
+        // Only products created by the test are deleted, so gets and updates keep finding theirs
+        private final ConcurrentLinkedQueue<Long> createdIds = new ConcurrentLinkedQueue<>();
+
+        Workload(String baseUrl, int products, Map<String, Integer> mix, Map<String, Stats> stats) {
+            this.baseUrl = baseUrl;
+            this.products = products;
+            this.stats = stats;
+            this.weightedOperations = mix.entrySet().stream()
+                    .flatMap(entry -> Collections.nCopies(entry.getValue(), entry.getKey()).stream())
+                    .toArray(String[]::new);
+            this.client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(Executors.newVirtualThreadPerTaskExecutor())
+                    .build();
+        }
+
+        void drive(int clients, int seconds) throws InterruptedException {
+            long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int c = 0; c < clients; c++) {
+                    executor.submit(() -> {
+                        while (System.nanoTime() < end) {
+                            execute(weightedOperations[ThreadLocalRandom.current().nextInt(weightedOperations.length)]);
+                        }
+                        return null;
+                    });
+                }
+            }
+        }
+
+        private void execute(String operation) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long seededId = 1 + random.nextInt(products);
+
+            if (operation.equals("delete")) {
+                Long id = createdIds.poll();
+                if (id == null) {
+                    operation = "create";
+                } else {
+                    send(operation, HttpRequest.newBuilder(uri("/products/" + id)).DELETE());
+                    return;
+                }
+            }
+
+            switch (operation) {
+                case "get":
+                    send(operation, HttpRequest.newBuilder(uri("/products/" + seededId)).GET());
+                    break;
+                case "list":
+                    send(operation, HttpRequest.newBuilder(uri("/products/page?size=50")).GET());
+                    break;
+                case "create":
+                    String created = send(operation, HttpRequest.newBuilder(uri("/products/"))
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString("{\"productName\":\"Load test\",\"category\":\"Load\","
+                                    + "\"unitPrice\":" + random.nextInt(1, 1000) + ",\"unitCost\":" + random.nextInt(1, 500)
+                                    + ",\"numberSold\":" + random.nextInt(10_000) + "}")));
+                    if (created != null) {
+                        createdIds.add(JSON.readTree(created).get("id").asLong());
+                    }
+                    break;
+                case "update":
+                    send(operation, HttpRequest.newBuilder(uri("/products/" + seededId))
+                            .header("Content-Type", "application/json")
+                            .PUT(HttpRequest.BodyPublishers.ofString("{\"numberSold\":" + random.nextInt(10_000) + "}")));
+                    break;
+                default:
+                    send(operation, HttpRequest.newBuilder(uri("/reports/financial")).GET());
+            }
+        }
+
+        /**
+         * Returns the response body of a successful request, null otherwise.
+         */
+        private String send(String operation, HttpRequest.Builder request) {
+            Stats operationStats = stats.get(operation);
+            long start = System.nanoTime();
+            try {
+                HttpResponse<String> response = client.send(request.timeout(Duration.ofSeconds(30)).build(), HttpResponse.BodyHandlers.ofString());
+                operationStats.record(System.nanoTime() - start);
+                if (response.statusCode() >= 400) {
+                    operationStats.errors.incrementAndGet();
+                    return null;
+                }
+                return response.body();
+            } catch (Exception e) {
+                operationStats.record(System.nanoTime() - start);
+                operationStats.errors.incrementAndGet();
+                return null;
+            }
+        }
+
+        private URI uri(String path) {
+            return URI.create(baseUrl + path);
+        }
+    }
+
+    private static final class Stats {
+
+        // Microseconds, up to one minute with three significant digits
+        private final Recorder recorder = new Recorder(TimeUnit.MINUTES.toMicros(1), 3);
+        final AtomicLong errors = new AtomicLong();
+
+        void record(long nanos) {
+            recorder.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), TimeUnit.MINUTES.toMicros(1)));
+        }
+
+        void reset() {
+            recorder.reset();
+            errors.set(0);
+        }
+
+        Map<String, Object> toResult(int seconds) {
+            Histogram histogram = recorder.getIntervalHistogram();
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("count", histogram.getTotalCount());
+            result.put("throughput", (double) histogram.getTotalCount() / seconds);
+            result.put("p50", histogram.getValueAtPercentile(50) / 1000.0);
+            result.put("p90", histogram.getValueAtPercentile(90) / 1000.0);
+            result.put("p99", histogram.getValueAtPercentile(99) / 1000.0);
+            result.put("p99.9", histogram.getValueAtPercentile(99.9) / 1000.0);
+            result.put("max", histogram.getMaxValue() / 1000.0);
+            result.put("errors", errors.get());
+            return result;
+        }
+    }
+}
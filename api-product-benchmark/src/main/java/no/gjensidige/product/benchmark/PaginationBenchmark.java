@@ -0,0 +1,86 @@
+package no.gjensidige.product.benchmark;
+
+import jakarta.persistence.EntityManager;
+import no.gjensidige.product.entity.Product;
+import no.gjensidige.product.repository.ProductRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Limit;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PaginationBenchmark
+ *
+ * Latency of fetching page number {page} of {pageSize} products with OFFSET paging versus
+ * keyset paging (id > :after order by id limit :n) on an H2 product table. offset and keyset
+ * run the same kind of JPQL query so only the paging clause differs; keysetRepository is the
+ * derived query ProductService actually uses.
+ *
+ * H2's MVStore can position inside the primary key index without reading the skipped rows,
+ * so OFFSET stays cheap there; on disk based databases it grows linearly with the page number.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class PaginationBenchmark {
+
+    @Param({"1000000"})
+    int size;
+
+    @Param({"100"})
+    int pageSize;
+
+    @Param({"1", "1000", "9000"})
+    int page;
+
+    BenchmarkContext context;
+    ProductRepository productRepository;
+    EntityManager entityManager;
+    long afterId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        context.seed(size, 42);
+        productRepository = context.bean(ProductRepository.class);
+        entityManager = context.bean(EntityManager.class);
+
+        // Last id of the previous page, which is what a keyset client would hold
+        afterId = offsetPage().get(0).getId() - 1;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Product> offset() {
+        return offsetPage();
+    }
+
+    @Benchmark
+    public List<Product> keyset() {
+        return entityManager.createQuery("select p from Product p where p.id > :afterId order by p.id", Product.class)
+                .setParameter("afterId", afterId)
+                .setMaxResults(pageSize)
+                .getResultList();
+    }
+
+    @Benchmark
+    public List<Product> keysetRepository() {
+        return productRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(pageSize));
+    }
+
+    private List<Product> offsetPage() {
+        return entityManager.createQuery("select p from Product p order by p.id", Product.class)
+                .setFirstResult((page - 1) * pageSize)
+                .setMaxResults(pageSize)
+                .getResultList();
+    }
+}
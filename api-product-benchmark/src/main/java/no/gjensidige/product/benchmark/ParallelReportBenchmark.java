@@ -0,0 +1,54 @@
+package no.gjensidige.product.benchmark;
+
+import no.gjensidige.product.model.FinancialReport;
+import no.gjensidige.product.service.ReportService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ParallelReportBenchmark
+ *
+ * Generates the financial report in PARALLEL mode from an H2 product table with a growing
+ * number of workers. parallelism=1 is the sequential baseline for the speedup; SCAN mode
+ * (one findAll and a single pass) is included for reference.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ParallelReportBenchmark {
+
+    @Param({"1000000"})
+    int size;
+
+    @Param({"1", "2", "4", "8"})
+    int parallelism;
+
+    BenchmarkContext context;
+    ReportService parallelReportService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(
+                "report.mode=PARALLEL",
+                "report.parallelism=" + parallelism,
+                "report.parallel.range-size=" + Math.max(10_000, size / (parallelism * 8)),
+                "spring.datasource.hikari.maximum-pool-size=" + (parallelism + 2));
+        context.seed(size, 42);
+        parallelReportService = context.bean(ReportService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public FinancialReport parallel() {
+        return parallelReportService.generateFinancialReport();
+    }
+}
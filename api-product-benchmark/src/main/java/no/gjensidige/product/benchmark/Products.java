@@ -0,0 +1,42 @@
+package no.gjensidige.product.benchmark;
+
+import no.gjensidige.product.entity.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Products
+ *
+ * Deterministic product fixtures shared by the benchmarks.
+ *
+ */
+final class Products {
+
+    static final String[] CATEGORIES = {"Forsikring", "Risiko", "Helseforsikring", "Bil", "Reise"};
+
+    private Products() {
+    }
+
+    static List<Product> random(int size, long seed) {
+        Random random = new Random(seed);
+        List<Product> products = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            products.add(random(random, i + 1L));
+        }
+        return products;
+    }
+
+    static Product random(Random random, Long id) {
+        Product product = new Product();
+        product.setId(id);
+        product.setProductName("Product " + id);
+        product.setCategory(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+        product.setImageLink("static.gjensidige.com/");
+        product.setNumberSold(random.nextInt(100_000));
+        product.setUnitPriceMinor(1_000 + random.nextInt(10_000));
+        product.setUnitCostMinor(500 + random.nextInt(5_000));
+        return product;
+    }
+}
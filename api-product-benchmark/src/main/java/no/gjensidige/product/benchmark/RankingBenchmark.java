@@ -0,0 +1,58 @@
+package no.gjensidige.product.benchmark;
+
+import no.gjensidige.product.entity.Product;
+import no.gjensidige.product.model.RankingMetric;
+import no.gjensidige.product.service.ProductSnapshot;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RankingBenchmark
+ *
+ * Top-k and bottom-k products by margin: the bounded heaps of ProductSnapshot.rank against
+ * sorting a copy of the product list and taking both ends of it.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class RankingBenchmark {
+
+    private static final Comparator<Product> BY_MARGIN = Comparator
+            .comparingLong((Product p) -> p.getNumberSold() * (p.getUnitPriceMinor() - p.getUnitCostMinor()))
+            .thenComparing(Product::getId);
+
+    @Param({"1000000"})
+    int size;
+
+    @Param({"10", "1000"})
+    int k;
+
+    List<Product> products;
+    ProductSnapshot snapshot;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        products = Products.random(size, 42);
+        snapshot = ProductSnapshot.of(products);
+    }
+
+    @Benchmark
+    public ProductSnapshot.Ranking boundedHeaps() {
+        return snapshot.rank(RankingMetric.MARGIN, k);
+    }
+
+    @Benchmark
+    public List<List<Product>> fullSort() {
+        List<Product> sorted = new ArrayList<>(products);
+        sorted.sort(BY_MARGIN);
+        return List.of(sorted.subList(0, k), sorted.subList(sorted.size() - k, sorted.size()).reversed());
+    }
+}
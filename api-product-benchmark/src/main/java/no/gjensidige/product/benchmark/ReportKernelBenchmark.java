@@ -0,0 +1,88 @@
+package no.gjensidige.product.benchmark;
+
+import no.gjensidige.product.entity.Product;
+import no.gjensidige.product.model.FinancialReport;
+import no.gjensidige.product.service.ReportAccumulator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ReportKernelBenchmark
+ *
+ * Compares the six-pass report computation ReportService used to do (two boxed sums and
+ * four Collections.max/min with boxing comparators) with the fused ReportAccumulator pass.
+ * Both run over an in-memory product list, so the numbers exclude any database access.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+public class ReportKernelBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    int size;
+
+    List<Product> products;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        products = Products.random(size, 42);
+    }
+
+    @Benchmark
+    public FinancialReport legacySixPass() {
+        return LegacyReport.generate(products);
+    }
+
+    @Benchmark
+    public FinancialReport fusedSinglePass() {
+        return ReportAccumulator.of(products).toReport();
+    }
+
+    /**
+     * The report computation as it was before the fused kernel, kept as the baseline. The
+     * boxing of the original is kept, on the fixed-point figures.
+     */
+    static final class LegacyReport {
+
+        static FinancialReport generate(List<Product> productList) {
+            Long totalTurnover = productList.stream().mapToLong(LegacyReport::getProductTurnover).sum();
+            Long totalCost = productList.stream().mapToLong(LegacyReport::getProductCost).sum();
+            Long totalMargin = totalTurnover - totalCost;
+
+            Product highestMarginProduct = Collections.max(productList, Comparator.comparing(LegacyReport::getProductMargin));
+            Product lowestMarginProduct = Collections.min(productList, Comparator.comparing(LegacyReport::getProductMargin));
+            Product leastSoldProduct = Collections.min(productList, Comparator.comparing(Product::getNumberSold));
+            Product mostSoldProduct = Collections.max(productList, Comparator.comparing(Product::getNumberSold));
+
+            FinancialReport report = new FinancialReport();
+            report.setLowestMarginProduct(lowestMarginProduct);
+            report.setMostSoldProduct(mostSoldProduct);
+            report.setTotalTurnoverMinor(totalTurnover);
+            report.setLeastSoldProduct(leastSoldProduct);
+            report.setTotalCostMinor(totalCost);
+            report.setTotalMarginMinor(totalMargin);
+            report.setHighestMarginProduct(highestMarginProduct);
+            return report;
+        }
+
+        static Long getProductTurnover(Product product) {
+            return product.getNumberSold() * product.getUnitPriceMinor();
+        }
+
+        static Long getProductCost(Product product) {
+            return product.getNumberSold() * product.getUnitCostMinor();
+        }
+
+        static Long getProductMargin(Product product) {
+            return getProductTurnover(product) - getProductCost(product);
+        }
+    }
+}
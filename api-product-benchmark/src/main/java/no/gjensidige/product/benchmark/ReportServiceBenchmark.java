@@ -0,0 +1,50 @@
+package no.gjensidige.product.benchmark;
+
+import no.gjensidige.product.model.FinancialReport;
+import no.gjensidige.product.service.ReportService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ReportServiceBenchmark
+ *
+ * ReportService.generateFinancialReport end to end against an H2 product table for each
+ * report mode and catalog size. The report cache is off so every call computes a report;
+ * INCREMENTAL bootstraps its aggregates during warmup and is then independent of the size.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ReportServiceBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    @Param({"SCAN", "INCREMENTAL", "DATABASE", "COLUMNAR"})
+    String mode;
+
+    BenchmarkContext context;
+    ReportService reportService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("report.mode=" + mode, "report.cache.enabled=false");
+        context.seed(size, 42);
+        reportService = context.bean(ReportService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public FinancialReport generateFinancialReport() {
+        return reportService.generateFinancialReport();
+    }
+}
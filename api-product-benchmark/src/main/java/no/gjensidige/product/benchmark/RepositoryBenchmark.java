@@ -0,0 +1,56 @@
+package no.gjensidige.product.benchmark;
+
+import no.gjensidige.product.entity.Product;
+import no.gjensidige.product.repository.ProductRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RepositoryBenchmark
+ *
+ * ProductRepository.findAll and findById against an H2 product table, including entity
+ * hydration. findById picks a random existing id each call so it does not measure the
+ * persistence context.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class RepositoryBenchmark {
+
+    @Param({"1000", "100000"})
+    int size;
+
+    BenchmarkContext context;
+    ProductRepository productRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        context.seed(size, 42);
+        productRepository = context.bean(ProductRepository.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Product> findAll() {
+        return productRepository.findAll();
+    }
+
+    @Benchmark
+    public Optional<Product> findById() {
+        // The seeded table holds the sample rows 1-5 followed by the generated ones
+        return productRepository.findById(1L + ThreadLocalRandom.current().nextInt(size));
+    }
+}
@@ -0,0 +1,68 @@
+package no.gjensidige.product.benchmark;
+
+import no.gjensidige.product.dto.ProductDTO;
+import no.gjensidige.product.dto.SaleDTO;
+import no.gjensidige.product.service.ProductService;
+import no.gjensidige.product.service.SalesService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SalesIngestionBenchmark
+ *
+ * Sales per second recorded against 10k products: one PUT-style ProductService update per
+ * sale, against SalesService buffering them for its batched flushes. Buffered sales are
+ * flushed at the end of every iteration so their database work is part of the measurement.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class SalesIngestionBenchmark {
+
+    private static final int PRODUCTS = 10_000;
+
+    BenchmarkContext context;
+    ProductService productService;
+    SalesService salesService;
+    long firstId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("report.cache.enabled=false", "product.sales.flush-interval=100ms");
+        context.seed(PRODUCTS, 42);
+        productService = context.bean(ProductService.class);
+        salesService = context.bean(SalesService.class);
+        firstId = productService.getAllProducts().size() - PRODUCTS + 1;
+    }
+
+    @TearDown(Level.Iteration)
+    public void flush() {
+        salesService.flush();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object updatePerSale() {
+        long id = firstId + ThreadLocalRandom.current().nextInt(PRODUCTS);
+        ProductDTO change = new ProductDTO();
+        change.setNumberSold(productService.getProduct(id).getNumberSold() + 1);
+        return productService.updateProduct(id, change);
+    }
+
+    @Benchmark
+    public void bufferedSale() {
+        long id = firstId + ThreadLocalRandom.current().nextInt(PRODUCTS);
+        salesService.recordSales(Collections.singletonList(new SaleDTO(id, 1L)));
+    }
+}
@@ -0,0 +1,158 @@
+package no.gjensidige.product.benchmark;
+
+import no.gjensidige.product.model.ProductFilter;
+import no.gjensidige.product.model.ProductPage;
+import no.gjensidige.product.service.ProductService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SearchBenchmark
+ *
+ * First page of ProductService.searchProducts for a selective criterion of each kind, with
+ * the search indexes in place and with them dropped, on an H2 product table. The products
+ * are spread over 5 categories, so categoryPriceRange combines an equality with a range.
+ * broadPriceRange matches every product, so the search probe sends it through the primary
+ * key instead of the price index. The plan H2 picks for the page query of every search is
+ * printed once per trial.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class SearchBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+
+    private static final int FILTERS = 10;
+
+    private static final String[] INDEXES = {"product_category_id_idx", "product_name_id_idx",
+            "product_unit_price_id_idx", "product_number_sold_idx"};
+
+    @Param({"1000000"})
+    int size;
+
+    @Param({"true", "false"})
+    boolean indexed;
+
+    BenchmarkContext context;
+    ProductService productService;
+
+    ProductFilter[] namePrefix;
+    ProductFilter[] priceRange;
+    ProductFilter[] minNumberSold;
+    ProductFilter[] broadPriceRange;
+    ProductFilter[] categoryPriceRange;
+    int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("report.cache.enabled=false", "report.mode=SCAN");
+        context.seed(size, 42);
+        productService = context.bean(ProductService.class);
+        JdbcTemplate jdbcTemplate = context.bean(JdbcTemplate.class);
+
+        if (!indexed) {
+            for (String index : INDEXES) {
+                jdbcTemplate.execute("drop index " + index);
+            }
+        }
+        jdbcTemplate.execute("analyze");
+
+        // H2 answers a repeated query on an unchanged table from its last result, so every
+        // benchmark cycles through FILTERS variants of its search
+        // 11 products each: "Product 1234d" and "Product 1234d0" to "Product 1234d9"
+        namePrefix = filters((filter, i) -> filter.setNamePrefix("Product 1234" + i));
+        // About 1 in 1000 products each
+        priceRange = filters((filter, i) -> priceRange(filter, 5000 + 10 * i, 5009 + 10 * i));
+        // About 1 in 1000 products each
+        minNumberSold = filters((filter, i) -> filter.setMinNumberSold(99_900L + i));
+        // Every product
+        broadPriceRange = filters((filter, i) -> filter.setMinPrice(BigDecimal.valueOf(i, 2)));
+        // About 1 in 200 of the products of a category each
+        categoryPriceRange = filters((filter, i) -> {
+            filter.setCategory(Products.CATEGORIES[i % Products.CATEGORIES.length]);
+            priceRange(filter, 5000 + 50 * i, 5049 + 50 * i);
+        });
+
+        // The page query Hibernate sends, the selective ranges read their index and the broad one walks the primary key
+        Map<String, Object[]> plans = new LinkedHashMap<>();
+        plans.put("namePrefix", new Object[]{"id + 0 > ? and product_name like ? escape '\\'", "Product 12345%"});
+        plans.put("priceRange", new Object[]{"id + 0 > ? and unit_price_minor >= ? and unit_price_minor <= ?", 5000L, 5009L});
+        plans.put("minNumberSold", new Object[]{"id + 0 > ? and number_sold >= ?", 99_900L});
+        plans.put("broadPriceRange", new Object[]{"id > ? and unit_price_minor >= ?", 0L});
+        plans.put("categoryPriceRange", new Object[]{"id > ? and category = ? and unit_price_minor >= ? and unit_price_minor <= ?", "Bil", 5000L, 5049L});
+
+        System.out.printf("%n%d products, indexed=%s%n", size, indexed);
+        plans.forEach((name, plan) -> {
+            Object[] args = new Object[plan.length + 1];
+            args[0] = 0L;
+            System.arraycopy(plan, 1, args, 1, plan.length - 1);
+            args[plan.length] = PAGE_SIZE + 1;
+            System.out.printf("%s:%n%s%n", name, jdbcTemplate.queryForObject(
+                    "explain select * from product where " + plan[0] + " order by id fetch first ? rows only", String.class, args));
+        });
+    }
+
+    private static ProductFilter[] filters(FilterVariant variant) {
+        ProductFilter[] filters = new ProductFilter[FILTERS];
+        for (int i = 0; i < FILTERS; i++) {
+            filters[i] = new ProductFilter();
+            variant.apply(filters[i], i);
+        }
+        return filters;
+    }
+
+    private static void priceRange(ProductFilter filter, long minPriceMinor, long maxPriceMinor) {
+        filter.setMinPrice(BigDecimal.valueOf(minPriceMinor, 2));
+        filter.setMaxPrice(BigDecimal.valueOf(maxPriceMinor, 2));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ProductPage namePrefix() {
+        return search(namePrefix);
+    }
+
+    @Benchmark
+    public ProductPage priceRange() {
+        return search(priceRange);
+    }
+
+    @Benchmark
+    public ProductPage minNumberSold() {
+        return search(minNumberSold);
+    }
+
+    @Benchmark
+    public ProductPage broadPriceRange() {
+        return search(broadPriceRange);
+    }
+
+    @Benchmark
+    public ProductPage categoryPriceRange() {
+        return search(categoryPriceRange);
+    }
+
+    private ProductPage search(ProductFilter[] filters) {
+        next = (next + 1) % FILTERS;
+        return productService.searchProducts(filters[next], null, PAGE_SIZE);
+    }
+
+    private interface FilterVariant {
+
+        void apply(ProductFilter filter, int i);
+    }
+}
@@ -0,0 +1,162 @@
+package no.gjensidige.product.benchmark;
+
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SlowConsumerLoadTest
+ *
+ * Many clients read the full product listing slowly (8 KB every few milliseconds) while a
+ * probe measures the latency of GET /products/{id} next to them. The blocking listing
+ * (GET /products/) keeps a Tomcat thread per slow client busy writing, the reactive one
+ * (GET /reactive/products/) parks a virtual thread instead, so the probe latency shows
+ * whether slow readers starve the other requests.
+ *
+ * Arguments are key=value pairs: clients (300), duration in seconds (20), products (20000),
+ * threads, the Tomcat worker threads (50), pause between 8 KB reads in ms (5) and endpoints
+ * (blocking,reactive).
+ *
+ */
+public class SlowConsumerLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        int clients = intArg(args, "clients", 300);
+        int duration = intArg(args, "duration", 20);
+        int products = intArg(args, "products", 20_000);
+        int threads = intArg(args, "threads", 50);
+        int pause = intArg(args, "pause", 5);
+        String endpoints = stringArg(args, "endpoints", "blocking,reactive");
+
+        System.out.printf("%d slow clients, %d s, %d products, %d Tomcat threads, %d ms per 8 KB%n", clients, duration, products, threads, pause);
+        System.out.printf("%-9s %12s %10s %12s %12s %12s %8s%n", "endpoint", "listings/s", "MB/s", "probe p50", "probe p99", "peak threads", "errors");
+
+        for (String endpoint : endpoints.split(",")) {
+            String path = endpoint.equals("reactive") ? "/reactive/products/" : "/products/";
+
+            try (BenchmarkContext context = BenchmarkContext.startServer(
+                    "server.tomcat.threads.max=" + threads,
+                    "spring.cache.type=none")) {
+                context.seed(products, 42);
+
+                Result result = run("http://localhost:" + context.port(), path, clients, duration, products, pause);
+                System.out.printf("%-9s %12.1f %10.1f %12.2f %12.2f %12d %8d%n", endpoint,
+                        (double) result.listings.get() / duration, result.bytes.get() / 1e6 / duration,
+                        result.percentile(50), result.percentile(99), result.peakThreads, result.errors.get());
+            }
+        }
+    }
+
+    private static Result run(String baseUrl, String path, int clients, int duration, int products, int pause) throws Exception {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        threadBean.resetPeakThreadCount();
+
+        Result result = new Result();
+        long end = System.nanoTime() + Duration.ofSeconds(duration).toNanos();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clients; c++) {
+                executor.submit(() -> {
+                    byte[] buffer = new byte[8192];
+                    while (System.nanoTime() < end) {
+                        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+                        try (InputStream body = client.send(request, HttpResponse.BodyHandlers.ofInputStream()).body()) {
+                            int read;
+                            int unpaused = 0;
+                            while ((read = body.read(buffer)) != -1 && System.nanoTime() < end) {
+                                result.bytes.addAndGet(read);
+                                // Pause per 8 KB rather than per read, the chunk sizes differ between the endpoints
+                                unpaused += read;
+                                if (unpaused >= buffer.length) {
+                                    unpaused = 0;
+                                    Thread.sleep(pause);
+                                }
+                            }
+                            if (read == -1) {
+                                result.listings.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            result.errors.incrementAndGet();
+                        }
+                    }
+                    return null;
+                });
+            }
+
+            executor.submit(() -> {
+                // Let the slow readers fill the server first
+                Thread.sleep(1000);
+                int id = 0;
+                while (System.nanoTime() < end) {
+                    HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/products/" + (1 + id++ % products))).GET().build();
+                    long start = System.nanoTime();
+                    try {
+                        client.send(request, HttpResponse.BodyHandlers.discarding());
+                        result.add(System.nanoTime() - start);
+                    } catch (Exception e) {
+                        result.errors.incrementAndGet();
+                    }
+                    Thread.sleep(20);
+                }
+                return null;
+            });
+        }
+
+        result.peakThreads = threadBean.getPeakThreadCount();
+        return result;
+    }
+
+    private static int intArg(String[] args, String name, int defaultValue) {
+        return Integer.parseInt(stringArg(args, name, String.valueOf(defaultValue)));
+    }
+
+    private static String stringArg(String[] args, String name, String defaultValue) {
+        for (String arg : args) {
+            if (arg.startsWith(name + "=")) {
+                return arg.substring(name.length() + 1);
+            }
+        }
+        return defaultValue;
+    }
+
+    private static final class Result {
+
+        final AtomicLong listings = new AtomicLong();
+        final AtomicLong bytes = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+        private final List<Long> probeLatencies = new ArrayList<>();
+        int peakThreads;
+
+        synchronized void add(long latency) {
+            probeLatencies.add(latency);
+        }
+
+        /**
+         * Probe latency in milliseconds at the given percentile, nearest-rank.
+         */
+        synchronized double percentile(double percentile) {
+            long[] sorted = probeLatencies.stream().mapToLong(Long::longValue).toArray();
+            Arrays.sort(sorted);
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+            return sorted[Math.max(0, rank - 1)] / 1_000_000.0;
+        }
+    }
+}
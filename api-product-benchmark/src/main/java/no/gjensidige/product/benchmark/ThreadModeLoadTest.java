@@ -0,0 +1,168 @@
+package no.gjensidige.product.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ThreadModeLoadTest
+ *
+ * Closed-loop HTTP load test that runs the same workload against ProductApp on platform
+ * threads and on virtual threads (spring.threads.virtual.enabled) and prints throughput and
+ * latency percentiles for both. Each client sends GET /products/{id}, GET /products/page and
+ * GET /reports/financial in a 8:1:1 mix. The product and report caches are switched off so
+ * every request reaches the database.
+ *
+ * Arguments are key=value pairs: clients (200), duration in seconds (20), warmup in
+ * seconds (5), products (10000), pool, the connection pool size (10), and modes
+ * (platform,virtual). Both modes share one JVM, so the second one runs with a warmer JIT;
+ * for a fair comparison run each mode on its own with modes=platform and modes=virtual.
+ *
+ */
+public class ThreadModeLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        int clients = intArg(args, "clients", 200);
+        int duration = intArg(args, "duration", 20);
+        int warmup = intArg(args, "warmup", 5);
+        int products = intArg(args, "products", 10_000);
+        int pool = intArg(args, "pool", 10);
+        String modes = stringArg(args, "modes", "platform,virtual");
+
+        System.out.printf("%d clients, %d s (+%d s warmup), %d products, pool size %d%n", clients, duration, warmup, products, pool);
+        System.out.printf("%-9s %10s %10s %10s %10s %10s %8s%n", "mode", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "errors");
+
+        for (String mode : modes.split(",")) {
+            boolean virtual = mode.equals("virtual");
+            Result result = run(virtual, clients, duration, warmup, products, pool);
+            System.out.printf("%-9s %10.0f %10.2f %10.2f %10.2f %10.2f %8d%n", virtual ? "virtual" : "platform",
+                    result.throughput(), result.percentile(50), result.percentile(99), result.percentile(99.9),
+                    result.percentile(100), result.errors.get());
+        }
+    }
+
+    private static Result run(boolean virtual, int clients, int duration, int warmup, int products, int pool) throws Exception {
+        try (BenchmarkContext context = BenchmarkContext.startServer(
+                "spring.threads.virtual.enabled=" + virtual,
+                "spring.datasource.hikari.maximum-pool-size=" + pool,
+                "spring.cache.type=none",
+                "report.cache.enabled=false",
+                "report.mode=DATABASE")) {
+            context.seed(products, 42);
+
+            String baseUrl = "http://localhost:" + context.port();
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(Executors.newVirtualThreadPerTaskExecutor())
+                    .build();
+
+            drive(client, baseUrl, clients, warmup, products, null);
+
+            Result result = new Result(duration);
+            drive(client, baseUrl, clients, duration, products, result);
+            return result;
+        }
+    }
+
+    private static void drive(HttpClient client, String baseUrl, int clients, int seconds, int products, Result result)
+            throws InterruptedException {
+        long end = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clients; c++) {
+                executor.submit(() -> {
+                    List<Long> latencies = new ArrayList<>();
+                    while (System.nanoTime() < end) {
+                        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + nextPath(products))).GET().build();
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() != 200 && result != null) {
+                                result.errors.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            if (result != null) {
+                                result.errors.incrementAndGet();
+                            }
+                        }
+                        latencies.add(System.nanoTime() - start);
+                    }
+                    if (result != null) {
+                        result.add(latencies);
+                    }
+                    return null;
+                });
+            }
+        }
+    }
+
+    private static String nextPath(int products) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int pick = random.nextInt(10);
+
+        if (pick == 0) {
+            return "/reports/financial";
+        }
+        if (pick == 1) {
+            return "/products/page?size=100";
+        }
+        return "/products/" + (1 + random.nextInt(products));
+    }
+
+    private static int intArg(String[] args, String name, int defaultValue) {
+        return Integer.parseInt(stringArg(args, name, String.valueOf(defaultValue)));
+    }
+
+    private static String stringArg(String[] args, String name, String defaultValue) {
+        for (String arg : args) {
+            if (arg.startsWith(name + "=")) {
+                return arg.substring(name.length() + 1);
+            }
+        }
+        return defaultValue;
+    }
+
+    private static final class Result {
+
+        final int seconds;
+        final AtomicLong errors = new AtomicLong();
+        private final List<Long> latencies = new ArrayList<>();
+        private long[] sorted;
+
+        Result(int seconds) {
+            this.seconds = seconds;
+        }
+
+        synchronized void add(List<Long> clientLatencies) {
+            latencies.addAll(clientLatencies);
+        }
+
+        double throughput() {
+            return (double) latencies.size() / seconds;
+        }
+
+        /**
+         * Latency in milliseconds at the given percentile, nearest-rank.
+         */
+        synchronized double percentile(double percentile) {
+            if (sorted == null) {
+                sorted = latencies.stream().mapToLong(Long::longValue).toArray();
+                Arrays.sort(sorted);
+            }
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+            return sorted[Math.max(0, rank - 1)] / 1_000_000.0;
+        }
+    }
+}
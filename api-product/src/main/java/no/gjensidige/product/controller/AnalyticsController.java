@@ -0,0 +1,38 @@
+package no.gjensidige.product.controller;
+
+import no.gjensidige.product.model.MarginBucket;
+import no.gjensidige.product.model.ProductAnalytics;
+import no.gjensidige.product.service.ProductSnapshot;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ *
+ *  RestController for analytics over all products, computed from the columnar ProductSnapshot
+ *
+ */
+
+@RestController
+@RequestMapping(name = "Analytics", value = "analytics")
+public class AnalyticsController {
+
+    static final int MAX_BUCKETS = 1000;
+
+    @Autowired
+    ProductSnapshot productSnapshot;
+
+    @GetMapping(value = "/summary")
+    public ProductAnalytics getSummary(){
+        return productSnapshot.analyze();
+    }
+
+    @GetMapping(value = "/margin-histogram")
+    public List<MarginBucket> getMarginHistogram(@RequestParam(defaultValue = "10") int buckets){
+        return productSnapshot.marginHistogram(Math.max(1, Math.min(buckets, MAX_BUCKETS)));
+    }
+}
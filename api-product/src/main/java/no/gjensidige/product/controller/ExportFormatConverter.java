@@ -0,0 +1,18 @@
+package no.gjensidige.product.controller;
+
+import no.gjensidige.product.model.ExportFormat;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.stereotype.Component;
+
+/**
+ * Lets clients pass the export format in any case, e.g. ?format=csv
+ *
+ */
+@Component
+public class ExportFormatConverter implements Converter<String, ExportFormat> {
+
+    @Override
+    public ExportFormat convert(String source) {
+        return ExportFormat.fromValue(source);
+    }
+}
@@ -1,36 +1,122 @@
 package no.gjensidige.product.controller;
 
+import jakarta.servlet.http.HttpServletResponse;
 import no.gjensidige.product.dto.ProductDTO;
 import no.gjensidige.product.entity.Product;
+import no.gjensidige.product.model.BatchItemResult;
+import no.gjensidige.product.model.ExportFormat;
+import no.gjensidige.product.model.ProductFilter;
+import no.gjensidige.product.model.ProductPage;
+import no.gjensidige.product.repository.ProductRepository;
+import no.gjensidige.product.service.ProductBatchService;
+import no.gjensidige.product.service.ProductExportService;
 import no.gjensidige.product.service.ProductService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  *
  * RestController to handle CRUD operations for Products
  *
+ * GET /products/ and GET /products/{id} send an ETag and answer If-None-Match with 304 and
+ * no body. PUT and DELETE of a product honour If-Match and fail with 412 when the product
+ * has changed since.
+ *
+ * PATCH /products/{id} writes only the fields given in the body. It answers with the
+ * updated product, or with 204 and just the ETag for Prefer: return=minimal.
+ *
  */
 
 @RestController
 @RequestMapping(name = "Products", value = "products")
 public class ProductController {
 
+    static final String PREFER = "Prefer";
+
+    static final String PREFERENCE_APPLIED = "Preference-Applied";
+
+    static final String RETURN_MINIMAL = "return=minimal";
+
     @Autowired
     ProductService productService;
 
+    @Autowired
+    ProductExportService productExportService;
+
+    @Autowired
+    ProductBatchService productBatchService;
+
     @GetMapping(value = "/")
-    List<Product> getProducts() {
+    List<Product> getProducts(WebRequest request, HttpServletResponse response) {
+
+        // The catalog version query only pays off when it can save loading the list
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                && request.checkNotModified(etag(productService.getCatalogVersion()))) {
+            return null;
+        }
+
+        List<Product> products = productService.getAllProducts();
+        if (response.getHeader(HttpHeaders.ETAG) == null) {
+            response.setHeader(HttpHeaders.ETAG, etag(products));
+        }
+
+        return products;
+    }
+
+    /**
+     * Keyset paginated listing, pass nextToken from the previous page as token.
+     */
+    @GetMapping(value = "/page")
+    ProductPage getProductPage(@RequestParam(value = "token", required = false) String token,
+                               @RequestParam(value = "size", defaultValue = "100") int size,
+                               @RequestParam(value = "category", required = false) String category) {
+
+        return productService.getProductPage(token, size, category);
+    }
+
+    /**
+     * Keyset paginated search, see ProductFilter for the criteria. Paged like /page.
+     */
+    @GetMapping(value = "/search")
+    ProductPage searchProducts(ProductFilter filter,
+                               @RequestParam(value = "token", required = false) String token,
+                               @RequestParam(value = "size", defaultValue = "100") int size) {
+
+        return productService.searchProducts(filter, token, size);
+    }
+
+    /**
+     * Streams all products as NDJSON or CSV without materializing the list.
+     */
+    @GetMapping(value = "/export")
+    ResponseEntity<StreamingResponseBody> exportProducts(@RequestParam(value = "format", defaultValue = "NDJSON") ExportFormat format) {
+
+        StreamingResponseBody body = outputStream -> productExportService.exportProducts(format, outputStream);
 
-        return productService.getAllProducts();
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .body(body);
     }
 
     @GetMapping(value = "/{id}")
-    Product getProduct(@PathVariable("id") Long id) {
+    Product getProduct(@PathVariable("id") Long id, WebRequest request) {
 
-        return productService.getProduct(id);
+        Product product = productService.getProduct(id);
+
+        if (request.checkNotModified(etag(product))) {
+            return null;
+        }
+
+        return product;
     }
 
     @PostMapping(value = "/")
@@ -41,16 +127,106 @@ public class ProductController {
     }
 
     @PutMapping(value = "/{id}")
-    Product updateProduct(@PathVariable("id") Long id, @RequestBody ProductDTO inputProduct) {
+    Product updateProduct(@PathVariable("id") Long id, @RequestBody ProductDTO inputProduct,
+                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                          HttpServletResponse response) {
+
+        Product product = productService.updateProduct(id, inputProduct, versions(ifMatch));
+        response.setHeader(HttpHeaders.ETAG, etag(product));
 
-        return productService.updateProduct(id, inputProduct);
+        return product;
 
     }
 
+    @PatchMapping(value = "/{id}")
+    ResponseEntity<Product> patchProduct(@PathVariable("id") Long id, @RequestBody ProductDTO changes,
+                                         @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                         @RequestHeader(value = PREFER, required = false) String prefer) {
+
+        Product product = productService.patchProduct(id, changes, versions(ifMatch));
+
+        if (prefer != null && prefer.contains(RETURN_MINIMAL)) {
+            return ResponseEntity.noContent()
+                    .eTag(etag(product))
+                    .header(PREFERENCE_APPLIED, RETURN_MINIMAL)
+                    .build();
+        }
+
+        return ResponseEntity.ok().eTag(etag(product)).body(product);
+    }
 
     @DeleteMapping(value = "/{id}")
-    Product deleteProduct(@PathVariable("id") Long id) {
+    Product deleteProduct(@PathVariable("id") Long id,
+                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+
+        return productService.deleteProduct(id, versions(ifMatch));
+    }
+
+    // Bulk endpoints, the response has one result per item in request order
+
+    @PostMapping(value = "/batch")
+    List<BatchItemResult> createProducts(@RequestBody List<ProductDTO> inputProducts) {
+
+        return productBatchService.createProducts(inputProducts);
+    }
+
+    @PutMapping(value = "/batch")
+    List<BatchItemResult> updateProducts(@RequestBody List<ProductDTO> inputProducts) {
+
+        return productBatchService.updateProducts(inputProducts);
+    }
+
+    @DeleteMapping(value = "/batch")
+    List<BatchItemResult> deleteProducts(@RequestBody List<ProductDTO> inputProducts) {
+
+        return productBatchService.deleteProducts(inputProducts);
+    }
+
+    static String etag(Product product) {
+        return "\"" + product.getVersion() + "\"";
+    }
+
+    static String etag(ProductRepository.CatalogVersion version) {
+        return etag(version.getProductCount(), version.getIdSum(), version.getVersionSum());
+    }
+
+    /**
+     * The same tag as for the catalog version of the listed products.
+     */
+    static String etag(List<Product> products) {
+        long idSum = 0;
+        long versionSum = 0;
+        for (Product product : products) {
+            idSum += product.getId();
+            versionSum += product.getVersion();
+        }
+        return etag(products.size(), idSum, versionSum);
+    }
+
+    private static String etag(long productCount, long idSum, long versionSum) {
+        return "\"" + productCount + "-" + idSum + "-" + versionSum + "\"";
+    }
 
-        return productService.deleteProduct(id);
+    /**
+     * The versions listed in an If-Match header, null for no header or *. Weak or unknown
+     * tags never match.
+     */
+    static Set<Long> versions(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+
+        Set<Long> versions = new HashSet<>();
+        for (String tag : ifMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+                try {
+                    versions.add(Long.parseLong(tag.substring(1, tag.length() - 1)));
+                } catch (NumberFormatException e) {
+                    // Not one of ours, it can not match
+                }
+            }
+        }
+        return versions;
     }
 }
@@ -0,0 +1,32 @@
+package no.gjensidige.product.controller;
+
+import no.gjensidige.product.entity.Product;
+import no.gjensidige.product.service.ReactiveProductService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+/**
+ *
+ * Non-blocking variant of the product listing, the products are written as NDJSON while
+ * they are fetched and the request thread is released as soon as the stream starts.
+ *
+ */
+
+@RestController
+@RequestMapping(name = "ReactiveProducts", value = "reactive/products")
+public class ReactiveProductController {
+
+    @Autowired
+    ReactiveProductService reactiveProductService;
+
+    @GetMapping(value = "/", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    Flux<Product> getProducts(@RequestParam(value = "category", required = false) String category) {
+
+        return reactiveProductService.streamProducts(category);
+    }
+}
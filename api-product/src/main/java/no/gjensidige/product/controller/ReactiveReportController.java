@@ -0,0 +1,28 @@
+package no.gjensidige.product.controller;
+
+import no.gjensidige.product.model.FinancialReport;
+import no.gjensidige.product.service.ReactiveProductService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+/**
+ *
+ *  Non-blocking variant of the report endpoint, the report is reduced from the product stream
+ *
+ */
+
+@RestController
+@RequestMapping(name = "ReactiveReport", value = "reactive/reports")
+public class ReactiveReportController {
+
+    @Autowired
+    ReactiveProductService reactiveProductService;
+
+    @GetMapping(value = "/financial")
+    public Mono<FinancialReport> getFinancialReport(){
+        return reactiveProductService.generateFinancialReport();
+    }
+}
@@ -1,12 +1,23 @@
 package no.gjensidige.product.controller;
 
+import no.gjensidige.product.entity.ReportSnapshot;
+import no.gjensidige.product.model.CategoryReport;
 import no.gjensidige.product.model.FinancialReport;
+import no.gjensidige.product.model.ProductRanking;
+import no.gjensidige.product.model.RankingMetric;
+import no.gjensidige.product.model.ReportDelta;
+import no.gjensidige.product.service.ReportHistoryService;
 import no.gjensidige.product.service.ReportService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
 /**
  *
  *  RestController for the new report endpoint in exercise 2
@@ -18,11 +29,59 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping(name = "Report", value = "reports")
 public class ReportController {
 
+    static final int MAX_RANKING_SIZE = 1000;
+
+    static final int MAX_SNAPSHOTS = 1000;
+
+    static final int MAX_WEEKS = 52;
+
     @Autowired
     ReportService reportService;
 
+    @Autowired
+    ReportHistoryService reportHistoryService;
+
     @GetMapping(value = "/financial")
     public FinancialReport getFinancialReport(){
         return reportService.generateFinancialReport();
     }
+
+    @GetMapping(value = "/financial/by-category")
+    public List<CategoryReport> getFinancialReportByCategory(){
+        return reportService.generateCategoryReports();
+    }
+
+    @GetMapping(value = "/rankings")
+    public ProductRanking getRanking(@RequestParam(defaultValue = "MARGIN") RankingMetric by,
+                                     @RequestParam(defaultValue = "10") int k){
+        return reportService.generateRanking(by, Math.max(1, Math.min(k, MAX_RANKING_SIZE)));
+    }
+
+    // History of the stored reports, times are ISO-8601 instants
+
+    @GetMapping(value = "/history")
+    public List<ReportSnapshot> getReportHistory(@RequestParam(required = false) Instant from,
+                                                 @RequestParam(required = false) Instant to,
+                                                 @RequestParam(defaultValue = "1000") int limit){
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minus(Duration.ofDays(7));
+        return reportHistoryService.getSnapshots(start, end, Math.max(1, Math.min(limit, MAX_SNAPSHOTS)));
+    }
+
+    /**
+     * The change between the reports as of from and to, by default over the last week.
+     */
+    @GetMapping(value = "/history/delta")
+    public ReportDelta getReportDelta(@RequestParam(required = false) Instant from,
+                                      @RequestParam(required = false) Instant to){
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minus(Duration.ofDays(7));
+        return reportHistoryService.getDelta(start, end);
+    }
+
+    @GetMapping(value = "/history/weekly")
+    public List<ReportDelta> getWeeklyReportDeltas(@RequestParam(required = false) Instant to,
+                                                   @RequestParam(defaultValue = "4") int weeks){
+        return reportHistoryService.getWeeklyDeltas(to != null ? to : Instant.now(), Math.max(0, Math.min(weeks, MAX_WEEKS)));
+    }
 }
@@ -0,0 +1,35 @@
+package no.gjensidige.product.controller;
+
+import no.gjensidige.product.dto.SaleDTO;
+import no.gjensidige.product.service.SalesService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ *
+ * RestController for sales events. Accepted sales are buffered and reach numberSold with
+ * the next flush of SalesService, see there for what can be lost.
+ *
+ */
+
+@RestController
+@RequestMapping(name = "Sales", value = "sales")
+public class SalesController {
+
+    @Autowired
+    SalesService salesService;
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    void recordSales(@RequestBody List<SaleDTO> sales) {
+
+        salesService.recordSales(sales);
+    }
+}
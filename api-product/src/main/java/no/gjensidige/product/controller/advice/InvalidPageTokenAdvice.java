@@ -0,0 +1,24 @@
+package no.gjensidige.product.controller.advice;
+
+import no.gjensidige.product.exception.InvalidPageTokenException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Respons controller for invalid page token exception
+ *
+ */
+@ControllerAdvice
+public class InvalidPageTokenAdvice {
+
+    @ResponseBody
+    @ExceptionHandler(InvalidPageTokenException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    String invalidPageTokenAdvice(InvalidPageTokenException ex) {
+        return ex.getMessage();
+    }
+
+}
@@ -0,0 +1,24 @@
+package no.gjensidige.product.controller.advice;
+
+import no.gjensidige.product.exception.InvalidSaleException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Respons controller for invalid sale exception
+ *
+ */
+@ControllerAdvice
+public class InvalidSaleAdvice {
+
+    @ResponseBody
+    @ExceptionHandler(InvalidSaleException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    String invalidSaleAdvice(InvalidSaleException ex) {
+        return ex.getMessage();
+    }
+
+}
@@ -0,0 +1,24 @@
+package no.gjensidige.product.controller.advice;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Respons controller for unconditional writes that lost against a concurrent write
+ *
+ */
+@ControllerAdvice
+public class OptimisticLockingFailureAdvice {
+
+    @ResponseBody
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    String optimisticLockingFailureAdvice(OptimisticLockingFailureException ex) {
+        return "The product was changed concurrently, read it again and retry";
+    }
+
+}
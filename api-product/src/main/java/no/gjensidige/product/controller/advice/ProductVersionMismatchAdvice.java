@@ -0,0 +1,24 @@
+package no.gjensidige.product.controller.advice;
+
+import no.gjensidige.product.exception.ProductVersionMismatchException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Respons controller for product version mismatch exception
+ *
+ */
+@ControllerAdvice
+public class ProductVersionMismatchAdvice {
+
+    @ResponseBody
+    @ExceptionHandler(ProductVersionMismatchException.class)
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    String productVersionMismatchAdvice(ProductVersionMismatchException ex) {
+        return ex.getMessage();
+    }
+
+}
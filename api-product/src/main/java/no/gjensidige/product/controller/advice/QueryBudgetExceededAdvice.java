@@ -0,0 +1,24 @@
+package no.gjensidige.product.controller.advice;
+
+import no.gjensidige.product.exception.QueryBudgetExceededException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Respons controller for query budget exceeded exception
+ *
+ */
+@ControllerAdvice
+public class QueryBudgetExceededAdvice {
+
+    @ResponseBody
+    @ExceptionHandler(QueryBudgetExceededException.class)
+    @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
+    String queryBudgetExceededAdvice(QueryBudgetExceededException ex) {
+        return ex.getMessage();
+    }
+
+}
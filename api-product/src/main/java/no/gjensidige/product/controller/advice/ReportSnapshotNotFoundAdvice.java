@@ -0,0 +1,24 @@
+package no.gjensidige.product.controller.advice;
+
+import no.gjensidige.product.exception.ReportSnapshotNotFoundException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Respons controller for report snapshot not found exception
+ *
+ */
+@ControllerAdvice
+public class ReportSnapshotNotFoundAdvice {
+
+    @ResponseBody
+    @ExceptionHandler(ReportSnapshotNotFoundException.class)
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    String reportSnapshotNotFoundAdvice(ReportSnapshotNotFoundException ex) {
+        return ex.getMessage();
+    }
+
+}
@@ -1,11 +1,16 @@
 package no.gjensidige.product.dto;
 
-import java.math.BigInteger;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import no.gjensidige.product.model.MinorUnits;
+
+import java.math.BigDecimal;
 
 /**
  * ProductDTO is a data transfer object we use
  * for communication in the rest controllers.
  *
+ * Unit cost and price are decimals in JSON and minor units in Java, null means not set.
+ *
  */
 public class ProductDTO {
 
@@ -13,9 +18,9 @@ public class ProductDTO {
     String productName;
     String category;
     String imageLink;
-    Double unitCost;
-    Double unitPrice;
-    BigInteger numberSold;
+    Long unitCostMinor;
+    Long unitPriceMinor;
+    Long numberSold;
 
     public Long getId() {
         return id;
@@ -49,27 +54,53 @@ public class ProductDTO {
         this.imageLink = imageLink;
     }
 
-    public Double getUnitCost() {
-        return unitCost;
+    public BigDecimal getUnitCost() {
+        return unitCostMinor != null ? MinorUnits.toDecimal(unitCostMinor) : null;
+    }
+
+    public void setUnitCost(BigDecimal unitCost) {
+        this.unitCostMinor = unitCost != null ? MinorUnits.of(unitCost) : null;
+    }
+
+    @JsonIgnore
+    public Long getUnitCostMinor() {
+        return unitCostMinor;
     }
 
-    public void setUnitCost(Double unitCost) {
-        this.unitCost = unitCost;
+    public void setUnitCostMinor(Long unitCostMinor) {
+        this.unitCostMinor = unitCostMinor;
     }
 
-    public Double getUnitPrice() {
-        return unitPrice;
+    public BigDecimal getUnitPrice() {
+        return unitPriceMinor != null ? MinorUnits.toDecimal(unitPriceMinor) : null;
     }
 
-    public void setUnitPrice(Double unitPrice) {
-        this.unitPrice = unitPrice;
+    public void setUnitPrice(BigDecimal unitPrice) {
+        this.unitPriceMinor = unitPrice != null ? MinorUnits.of(unitPrice) : null;
     }
 
-    public BigInteger getNumberSold() {
+    @JsonIgnore
+    public Long getUnitPriceMinor() {
+        return unitPriceMinor;
+    }
+
+    public void setUnitPriceMinor(Long unitPriceMinor) {
+        this.unitPriceMinor = unitPriceMinor;
+    }
+
+    public Long getNumberSold() {
         return numberSold;
     }
 
-    public void setNumbersold(BigInteger numberSold) {
-        this.numberSold = numberSold;
+    public void setNumberSold(Long numberSold) {
+        this.numberSold = numberSold != null ? MinorUnits.checkCount(numberSold) : null;
+    }
+
+    /**
+     * @deprecated misspelled, use {@link #setNumberSold(Long)}
+     */
+    @Deprecated
+    public void setNumbersold(Long numberSold) {
+        setNumberSold(numberSold);
     }
 }
@@ -0,0 +1,37 @@
+package no.gjensidige.product.dto;
+
+/**
+ * SaleDTO
+ *
+ * One sales event, quantity units of a product were sold.
+ *
+ */
+public class SaleDTO {
+
+    private Long productId;
+    private Long quantity;
+
+    public SaleDTO() {
+    }
+
+    public SaleDTO(Long productId, Long quantity) {
+        this.productId = productId;
+        this.quantity = quantity;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public Long getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Long quantity) {
+        this.quantity = quantity;
+    }
+}
@@ -1,12 +1,18 @@
 package no.gjensidige.product.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
-import java.math.BigInteger;
+import no.gjensidige.product.model.MinorUnits;
+
+import java.math.BigDecimal;
 
 /**
  *  Product entity class.
  *
  *  This class is used for storing Products to the database.
+ *
+ *  Unit cost and price are stored in minor units, see MinorUnits. The reports work on the
+ *  primitive *Minor accessors, the decimal ones are for the JSON representation.
  */
 
 @Entity
@@ -14,14 +20,19 @@ import java.math.BigInteger;
 public class Product {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_seq")
+    @SequenceGenerator(name = "product_seq", sequenceName = "product_seq", allocationSize = 50)
     Long id;
     String productName;
     String category;
     String imageLink;
-    Double unitCost;
-    Double unitPrice;
-    BigInteger numberSold;
+    @Column(name = "unit_cost_minor")
+    long unitCostMinor;
+    @Column(name = "unit_price_minor")
+    long unitPriceMinor;
+    long numberSold;
+    @Version
+    long version;
 
 
     public String getProductName() {
@@ -32,20 +43,38 @@ public class Product {
         this.productName = productname;
     }
 
-    public Double getUnitPrice() {
-        return unitPrice;
+    public BigDecimal getUnitPrice() {
+        return MinorUnits.toDecimal(unitPriceMinor);
+    }
+
+    public void setUnitPrice(BigDecimal unitPrice) {
+        this.unitPriceMinor = unitPrice != null ? MinorUnits.of(unitPrice) : 0;
+    }
+
+    @JsonIgnore
+    public long getUnitPriceMinor() {
+        return unitPriceMinor;
+    }
+
+    public void setUnitPriceMinor(long unitPriceMinor) {
+        this.unitPriceMinor = unitPriceMinor;
+    }
+
+    public BigDecimal getUnitCost() {
+        return MinorUnits.toDecimal(unitCostMinor);
     }
 
-    public void setUnitPrice(Double unitPrice) {
-        this.unitPrice = unitPrice;
+    public void setUnitCost(BigDecimal unitCost) {
+        this.unitCostMinor = unitCost != null ? MinorUnits.of(unitCost) : 0;
     }
 
-    public Double getUnitCost() {
-        return unitCost;
+    @JsonIgnore
+    public long getUnitCostMinor() {
+        return unitCostMinor;
     }
 
-    public void setUnitCost(Double unitCost) {
-        this.unitCost = unitCost;
+    public void setUnitCostMinor(long unitCostMinor) {
+        this.unitCostMinor = unitCostMinor;
     }
 
     public String getCategory() {
@@ -56,11 +85,11 @@ public class Product {
         this.category = category;
     }
 
-    public BigInteger getNumberSold() {
+    public long getNumberSold() {
         return numberSold;
     }
 
-    public void setNumberSold(BigInteger numberSold) {
+    public void setNumberSold(long numberSold) {
         this.numberSold = numberSold;
     }
 
@@ -79,4 +108,16 @@ public class Product {
     public void setId(Long id) {
         this.id = id;
     }
+
+    /**
+     * Incremented on every write, the ETag of the product.
+     */
+    @JsonIgnore
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
@@ -0,0 +1,152 @@
+package no.gjensidige.product.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import no.gjensidige.product.model.FinancialReport;
+import no.gjensidige.product.model.MinorUnits;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Objects;
+
+/**
+ *  ReportSnapshot entity class.
+ *
+ *  A stored financial report: the totals in minor units and the ids of the extreme
+ *  products, not copies of them.
+ */
+
+@Entity
+@Table(name="report_snapshot")
+public class ReportSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "report_snapshot_seq")
+    @SequenceGenerator(name = "report_snapshot_seq", sequenceName = "report_snapshot_seq", allocationSize = 1)
+    Long id;
+    Timestamp createdTime;
+    long totalTurnoverMinor;
+    long totalCostMinor;
+    long totalMarginMinor;
+    Long highestMarginProductId;
+    Long lowestMarginProductId;
+    Long mostSoldProductId;
+    Long leastSoldProductId;
+
+    public static ReportSnapshot of(FinancialReport report) {
+        ReportSnapshot snapshot = new ReportSnapshot();
+        snapshot.createdTime = report.getCreatedTime();
+        snapshot.totalTurnoverMinor = report.getTotalTurnoverMinor();
+        snapshot.totalCostMinor = report.getTotalCostMinor();
+        snapshot.totalMarginMinor = report.getTotalMarginMinor();
+        snapshot.highestMarginProductId = idOf(report.getHighestMarginProduct());
+        snapshot.lowestMarginProductId = idOf(report.getLowestMarginProduct());
+        snapshot.mostSoldProductId = idOf(report.getMostSoldProduct());
+        snapshot.leastSoldProductId = idOf(report.getLeastSoldProduct());
+        return snapshot;
+    }
+
+    private static Long idOf(Product product) {
+        return product != null ? product.getId() : null;
+    }
+
+    /**
+     * True if both snapshots hold the same figures, whenever they were taken.
+     */
+    public boolean hasSameFigures(ReportSnapshot other) {
+        return totalTurnoverMinor == other.totalTurnoverMinor
+                && totalCostMinor == other.totalCostMinor
+                && totalMarginMinor == other.totalMarginMinor
+                && Objects.equals(highestMarginProductId, other.highestMarginProductId)
+                && Objects.equals(lowestMarginProductId, other.lowestMarginProductId)
+                && Objects.equals(mostSoldProductId, other.mostSoldProductId)
+                && Objects.equals(leastSoldProductId, other.leastSoldProductId);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Timestamp getCreatedTime() {
+        return createdTime;
+    }
+
+    public void setCreatedTime(Timestamp createdTime) {
+        this.createdTime = createdTime;
+    }
+
+    public BigDecimal getTotalTurnover() {
+        return MinorUnits.toDecimal(totalTurnoverMinor);
+    }
+
+    @JsonIgnore
+    public long getTotalTurnoverMinor() {
+        return totalTurnoverMinor;
+    }
+
+    public void setTotalTurnoverMinor(long totalTurnoverMinor) {
+        this.totalTurnoverMinor = totalTurnoverMinor;
+    }
+
+    public BigDecimal getTotalCost() {
+        return MinorUnits.toDecimal(totalCostMinor);
+    }
+
+    @JsonIgnore
+    public long getTotalCostMinor() {
+        return totalCostMinor;
+    }
+
+    public void setTotalCostMinor(long totalCostMinor) {
+        this.totalCostMinor = totalCostMinor;
+    }
+
+    public BigDecimal getTotalMargin() {
+        return MinorUnits.toDecimal(totalMarginMinor);
+    }
+
+    @JsonIgnore
+    public long getTotalMarginMinor() {
+        return totalMarginMinor;
+    }
+
+    public void setTotalMarginMinor(long totalMarginMinor) {
+        this.totalMarginMinor = totalMarginMinor;
+    }
+
+    public Long getHighestMarginProductId() {
+        return highestMarginProductId;
+    }
+
+    public void setHighestMarginProductId(Long highestMarginProductId) {
+        this.highestMarginProductId = highestMarginProductId;
+    }
+
+    public Long getLowestMarginProductId() {
+        return lowestMarginProductId;
+    }
+
+    public void setLowestMarginProductId(Long lowestMarginProductId) {
+        this.lowestMarginProductId = lowestMarginProductId;
+    }
+
+    public Long getMostSoldProductId() {
+        return mostSoldProductId;
+    }
+
+    public void setMostSoldProductId(Long mostSoldProductId) {
+        this.mostSoldProductId = mostSoldProductId;
+    }
+
+    public Long getLeastSoldProductId() {
+        return leastSoldProductId;
+    }
+
+    public void setLeastSoldProductId(Long leastSoldProductId) {
+        this.leastSoldProductId = leastSoldProductId;
+    }
+}
@@ -0,0 +1,39 @@
+package no.gjensidige.product.event;
+
+import no.gjensidige.product.entity.Product;
+
+/**
+ * ProductChangedEvent
+ *
+ * Published by the service layer after a product has been stored or removed,
+ * so that derived state (report aggregates, caches) can be kept up to date.
+ *
+ */
+public class ProductChangedEvent {
+
+    public enum Type { SAVED, DELETED }
+
+    private final Type type;
+    private final Product product;
+
+    public ProductChangedEvent(Type type, Product product) {
+        this.type = type;
+        this.product = product;
+    }
+
+    public static ProductChangedEvent saved(Product product) {
+        return new ProductChangedEvent(Type.SAVED, product);
+    }
+
+    public static ProductChangedEvent deleted(Product product) {
+        return new ProductChangedEvent(Type.DELETED, product);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Product getProduct() {
+        return product;
+    }
+}
@@ -0,0 +1,13 @@
+package no.gjensidige.product.exception;
+
+/**
+ *
+ * Exception thrown when a continuation token can not be decoded.
+ *
+ */
+public class InvalidPageTokenException extends RuntimeException {
+
+    public InvalidPageTokenException(String token) {
+        super("Invalid page token : " + token);
+    }
+}
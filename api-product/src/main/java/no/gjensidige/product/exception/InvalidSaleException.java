@@ -0,0 +1,13 @@
+package no.gjensidige.product.exception;
+
+/**
+ *
+ * Exception thrown when a sales event has no product or a quantity out of bounds.
+ *
+ */
+public class InvalidSaleException extends RuntimeException {
+
+    public InvalidSaleException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,13 @@
+package no.gjensidige.product.exception;
+
+/**
+ *
+ * Exception thrown when a conditional write (If-Match) finds the product at another version.
+ *
+ */
+public class ProductVersionMismatchException extends RuntimeException {
+
+    public ProductVersionMismatchException(Long id) {
+        super("Product with id : " + id + " does not match the given version");
+    }
+}
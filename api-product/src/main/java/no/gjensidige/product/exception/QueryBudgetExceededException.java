@@ -0,0 +1,13 @@
+package no.gjensidige.product.exception;
+
+/**
+ *
+ * Exception thrown when a request or service method executes more JDBC statements than its budget.
+ *
+ */
+public class QueryBudgetExceededException extends RuntimeException {
+
+    public QueryBudgetExceededException(String scope, int budget) {
+        super(scope + " exceeded its budget of " + budget + " JDBC statements");
+    }
+}
@@ -0,0 +1,15 @@
+package no.gjensidige.product.exception;
+
+import java.time.Instant;
+
+/**
+ *
+ * Exception thrown when no report had been stored yet at a point in time.
+ *
+ */
+public class ReportSnapshotNotFoundException extends RuntimeException {
+
+    public ReportSnapshotNotFoundException(Instant time) {
+        super("Could not find a report snapshot at : " + time);
+    }
+}
@@ -0,0 +1,70 @@
+package no.gjensidige.product.mapper;
+
+import no.gjensidige.product.dto.ProductDTO;
+import no.gjensidige.product.entity.Product;
+import org.springframework.stereotype.Component;
+
+/**
+ * ProductMapper
+ *
+ * Maps between ProductDTO and Product with plain getter/setter calls, so a renamed or
+ * added field is a compile error rather than a silently unmapped property.
+ *
+ */
+@Component
+public class ProductMapper {
+
+    public ProductDTO toDTO(Product product) {
+        ProductDTO productDTO = new ProductDTO();
+        productDTO.setId(product.getId());
+        productDTO.setProductName(product.getProductName());
+        productDTO.setCategory(product.getCategory());
+        productDTO.setImageLink(product.getImageLink());
+        productDTO.setUnitCostMinor(product.getUnitCostMinor());
+        productDTO.setUnitPriceMinor(product.getUnitPriceMinor());
+        productDTO.setNumberSold(product.getNumberSold());
+        return productDTO;
+    }
+
+    public Product toEntity(ProductDTO productDTO) {
+        Product product = new Product();
+        product.setId(productDTO.getId());
+        product.setProductName(productDTO.getProductName());
+        product.setCategory(productDTO.getCategory());
+        product.setImageLink(productDTO.getImageLink());
+        // Figures that are not set are 0
+        product.setUnitCostMinor(orZero(productDTO.getUnitCostMinor()));
+        product.setUnitPriceMinor(orZero(productDTO.getUnitPriceMinor()));
+        product.setNumberSold(orZero(productDTO.getNumberSold()));
+        return product;
+    }
+
+    /**
+     * Copies the fields that are set in the dto onto an existing product. Null fields are
+     * left untouched and the id is never changed.
+     */
+    public void merge(ProductDTO productDTO, Product product) {
+        if (productDTO.getProductName() != null) {
+            product.setProductName(productDTO.getProductName());
+        }
+        if (productDTO.getCategory() != null) {
+            product.setCategory(productDTO.getCategory());
+        }
+        if (productDTO.getImageLink() != null) {
+            product.setImageLink(productDTO.getImageLink());
+        }
+        if (productDTO.getUnitCostMinor() != null) {
+            product.setUnitCostMinor(productDTO.getUnitCostMinor());
+        }
+        if (productDTO.getUnitPriceMinor() != null) {
+            product.setUnitPriceMinor(productDTO.getUnitPriceMinor());
+        }
+        if (productDTO.getNumberSold() != null) {
+            product.setNumberSold(productDTO.getNumberSold());
+        }
+    }
+
+    private static long orZero(Long value) {
+        return value != null ? value : 0;
+    }
+}
@@ -0,0 +1,37 @@
+package no.gjensidige.product.metrics;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * JdbcMetricsPostProcessor
+ *
+ * Wraps the DataSource beans so JdbcStatistics sees every statement and fetched row. Every
+ * JDBC call then goes through a reflective proxy, so it is only switched on with
+ * product.jdbc-metrics.enabled=true, together with JdbcRequestMetricsFilter and
+ * QueryBudgetAspect.
+ *
+ */
+@Component
+@ConditionalOnProperty(name = "product.jdbc-metrics.enabled")
+public class JdbcMetricsPostProcessor implements BeanPostProcessor {
+
+    private final ObjectProvider<JdbcStatistics> jdbcStatistics;
+
+    // Resolved lazily, a post processor must not pull the meter registry in early
+    public JdbcMetricsPostProcessor(ObjectProvider<JdbcStatistics> jdbcStatistics) {
+        this.jdbcStatistics = jdbcStatistics;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource) {
+            return JdbcProxies.dataSource((DataSource) bean, jdbcStatistics::getObject);
+        }
+        return bean;
+    }
+}
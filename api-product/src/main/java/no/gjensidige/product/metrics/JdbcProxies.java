@@ -0,0 +1,87 @@
+package no.gjensidige.product.metrics;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * JdbcProxies
+ *
+ * Dynamic proxies around DataSource, Connection, Statement and ResultSet that report
+ * statement executions and ResultSet.next() hits to JdbcStatistics. Everything else is
+ * passed through, including unwrap(), so pool and driver specific APIs keep working.
+ *
+ */
+final class JdbcProxies {
+
+    private static final Set<Class<?>> WRAPPED_TYPES = Set.of(
+            Connection.class, Statement.class, PreparedStatement.class, CallableStatement.class, ResultSet.class);
+
+    private static final Set<String> EXECUTE_METHODS = Set.of(
+            "execute", "executeQuery", "executeUpdate", "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+    private JdbcProxies() {
+    }
+
+    static DataSource dataSource(DataSource target, Supplier<JdbcStatistics> statistics) {
+        return wrap(DataSource.class, target, statistics);
+    }
+
+    private static <T> T wrap(Class<T> type, Object target, Supplier<JdbcStatistics> statistics) {
+        return type.cast(Proxy.newProxyInstance(JdbcProxies.class.getClassLoader(), new Class<?>[]{type},
+                new CountingHandler(target, statistics)));
+    }
+
+    private static final class CountingHandler implements InvocationHandler {
+
+        private final Object target;
+        private final Supplier<JdbcStatistics> statistics;
+
+        CountingHandler(Object target, Supplier<JdbcStatistics> statistics) {
+            this.target = target;
+            this.statistics = statistics;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            // Identity semantics, e.g. Boot matches the DataSource of Flyway and JPA with equals()
+            if (method.getName().equals("equals") && method.getParameterCount() == 1) {
+                return proxy == args[0];
+            }
+            if (method.getName().equals("hashCode") && method.getParameterCount() == 0) {
+                return System.identityHashCode(proxy);
+            }
+
+            // Counted up front so a statement over a rejecting budget is never sent
+            if (target instanceof Statement && EXECUTE_METHODS.contains(method.getName())) {
+                statistics.get().statementExecuted();
+            }
+
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+
+            if (target instanceof ResultSet && method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+                statistics.get().rowFetched();
+            }
+
+            Class<?> returnType = method.getReturnType();
+            if (result != null && WRAPPED_TYPES.contains(returnType)) {
+                return wrap(returnType, result, statistics);
+            }
+            return result;
+        }
+    }
+}
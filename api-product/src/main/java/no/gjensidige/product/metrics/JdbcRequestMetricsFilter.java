@@ -0,0 +1,67 @@
+package no.gjensidige.product.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * JdbcRequestMetricsFilter
+ *
+ * Records the JDBC statements and rows of every request as the distribution summaries
+ * http.server.requests.jdbc.statements and http.server.requests.jdbc.rows, tagged with the
+ * same method and uri pattern as http.server.requests. Only work done on the request thread
+ * is counted; streamed exports, reactive listings and background report refreshes are not.
+ *
+ * Requests with more than product.query-budget.per-request statements are logged or
+ * rejected, see JdbcStatistics.
+ *
+ */
+@Component
+@ConditionalOnProperty(name = "product.jdbc-metrics.enabled")
+public class JdbcRequestMetricsFilter extends OncePerRequestFilter {
+
+    @Autowired
+    JdbcStatistics jdbcStatistics;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Value("${product.query-budget.per-request:0}")
+    int perRequestBudget;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        jdbcStatistics.begin(request.getMethod() + " " + request.getRequestURI(), perRequestBudget);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            JdbcStatistics.Counts counts = jdbcStatistics.end();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+
+            summary("http.server.requests.jdbc.statements", request.getMethod(), uri).record(counts.getStatements());
+            summary("http.server.requests.jdbc.rows", request.getMethod(), uri).record(counts.getRows());
+        }
+    }
+
+    private DistributionSummary summary(String name, String method, String uri) {
+        return DistributionSummary.builder(name)
+                .tag("method", method)
+                .tag("uri", uri)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
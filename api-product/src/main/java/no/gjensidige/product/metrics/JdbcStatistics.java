@@ -0,0 +1,143 @@
+package no.gjensidige.product.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import no.gjensidige.product.exception.QueryBudgetExceededException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * JdbcStatistics
+ *
+ * Counts JDBC statement executions and fetched rows seen by the DataSource wrapper. The
+ * totals are published as the jdbc.statements and jdbc.rows counters. Between begin() and
+ * end() the executions of the current thread are also counted in a scope; scopes nest, so
+ * a statement counts towards the request and every service method it runs in.
+ *
+ * A scope can have a statement budget. Going over it is logged once per scope, or with
+ * product.query-budget.action=REJECT the statement is not executed and a
+ * QueryBudgetExceededException is thrown instead.
+ *
+ */
+@Component
+public class JdbcStatistics {
+
+    private static final Logger log = LoggerFactory.getLogger(JdbcStatistics.class);
+
+    private final ThreadLocal<Deque<Counts>> scopes = ThreadLocal.withInitial(ArrayDeque::new);
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Value("${product.query-budget.action:LOG}")
+    QueryBudgetAction budgetAction = QueryBudgetAction.LOG;
+
+    private Counter statements;
+    private Counter rows;
+
+    @PostConstruct
+    void registerMeters() {
+        statements = Counter.builder("jdbc.statements")
+                .description("JDBC statements executed, a batch counts as one")
+                .register(meterRegistry);
+        rows = Counter.builder("jdbc.rows")
+                .description("Rows read from JDBC result sets")
+                .register(meterRegistry);
+    }
+
+    public void begin() {
+        begin("unnamed", 0);
+    }
+
+    /**
+     * Starts a scope on the current thread, a budget of 0 means unlimited.
+     */
+    public void begin(String name, int budget) {
+        scopes.get().push(new Counts(name, budget));
+    }
+
+    /**
+     * Ends the innermost scope of the current thread and returns what was counted in it.
+     */
+    public Counts end() {
+        Deque<Counts> current = scopes.get();
+        Counts counts = current.poll();
+        if (current.isEmpty()) {
+            scopes.remove();
+        }
+        return counts != null ? counts : new Counts("unnamed", 0);
+    }
+
+    /**
+     * Runs action in its own scope and returns the statements and rows it caused.
+     */
+    public Counts count(Runnable action) {
+        begin("count", 0);
+        Counts counts;
+        try {
+            action.run();
+        } finally {
+            counts = end();
+        }
+        return counts;
+    }
+
+    /**
+     * Called before a statement is executed.
+     */
+    void statementExecuted() {
+        statements.increment();
+        for (Counts counts : scopes.get()) {
+            counts.statements++;
+            if (counts.budget > 0 && counts.statements > counts.budget) {
+                overBudget(counts);
+            }
+        }
+    }
+
+    void rowFetched() {
+        rows.increment();
+        for (Counts counts : scopes.get()) {
+            counts.rows++;
+        }
+    }
+
+    private void overBudget(Counts counts) {
+        if (budgetAction == QueryBudgetAction.REJECT) {
+            throw new QueryBudgetExceededException(counts.name, counts.budget);
+        }
+        if (!counts.reported) {
+            counts.reported = true;
+            log.warn("{} exceeded its budget of {} JDBC statements", counts.name, counts.budget);
+        }
+    }
+
+    public static final class Counts {
+
+        final String name;
+        final int budget;
+        long statements;
+        long rows;
+        boolean reported;
+
+        Counts(String name, int budget) {
+            this.name = name;
+            this.budget = budget;
+        }
+
+        public long getStatements() {
+            return statements;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+    }
+}
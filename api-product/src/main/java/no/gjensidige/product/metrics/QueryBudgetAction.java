@@ -0,0 +1,9 @@
+package no.gjensidige.product.metrics;
+
+/**
+ * What happens when a request or service method executes more JDBC statements than its budget.
+ */
+public enum QueryBudgetAction {
+    LOG,
+    REJECT
+}
@@ -0,0 +1,54 @@
+package no.gjensidige.product.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+
+/**
+ * QueryBudgetAspect
+ *
+ * Counts the JDBC statements of every public method of a @Service in a JdbcStatistics scope,
+ * checked against the method's @QueryBudget if it has one. The count is recorded in the
+ * service.jdbc.statements summary by class and method. Statements a method leaves to other
+ * threads, such as the lazily subscribed reactive streams, are not counted.
+ *
+ */
+@Aspect
+@Component
+@ConditionalOnProperty(name = "product.jdbc-metrics.enabled")
+public class QueryBudgetAspect {
+
+    @Autowired
+    JdbcStatistics jdbcStatistics;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Around("within(@org.springframework.stereotype.Service *) && execution(public * *(..))")
+    public Object countStatements(ProceedingJoinPoint joinPoint) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        String className = method.getDeclaringClass().getSimpleName();
+        QueryBudget budget = method.getAnnotation(QueryBudget.class);
+
+        jdbcStatistics.begin(className + "." + method.getName(), budget != null ? budget.value() : 0);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            JdbcStatistics.Counts counts = jdbcStatistics.end();
+            DistributionSummary.builder("service.jdbc.statements")
+                    .description("JDBC statements executed per service method call")
+                    .tag("class", className)
+                    .tag("method", method.getName())
+                    .register(meterRegistry)
+                    .record(counts.getStatements());
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package no.gjensidige.product.model;
+
+/**
+ *  BatchItemResult
+ *
+ *  Outcome for one item of a bulk request, index is the position of the item in the request.
+ *
+ */
+public class BatchItemResult {
+
+    public enum Status { CREATED, UPDATED, DELETED, NOT_FOUND, INVALID, FAILED }
+
+    int index;
+    Long id;
+    Status status;
+    String message;
+
+    public BatchItemResult(int index, Long id, Status status, String message) {
+        this.index = index;
+        this.id = id;
+        this.status = status;
+        this.message = message;
+    }
+
+    public static BatchItemResult of(int index, Long id, Status status) {
+        return new BatchItemResult(index, id, status, null);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
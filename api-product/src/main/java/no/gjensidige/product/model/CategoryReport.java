@@ -0,0 +1,21 @@
+package no.gjensidige.product.model;
+
+/**
+ * CategoryReport
+ *
+ * The financial report figures of the products in one category. Products without a
+ * category are reported under a null category.
+ *
+ */
+public class CategoryReport extends FinancialReport {
+
+    String category;
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+}
@@ -0,0 +1,32 @@
+package no.gjensidige.product.model;
+
+import java.util.Locale;
+
+/**
+ * ExportFormat
+ *
+ * Formats supported by the streaming product export.
+ *
+ */
+public enum ExportFormat {
+
+    /** One JSON product per line. */
+    NDJSON("application/x-ndjson"),
+
+    /** Comma separated values with a header row. */
+    CSV("text/csv");
+
+    private final String contentType;
+
+    ExportFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public static ExportFormat fromValue(String value) {
+        return valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+}
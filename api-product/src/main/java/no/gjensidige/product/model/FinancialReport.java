@@ -1,6 +1,9 @@
 package no.gjensidige.product.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import no.gjensidige.product.entity.Product;
+
+import java.math.BigDecimal;
 import java.sql.Timestamp;
 
 /**
@@ -8,21 +11,30 @@ import java.sql.Timestamp;
  *
  *  The model we would like to fill with data in exercise 2
  *
+ *  The totals are kept in minor units, see MinorUnits.
+ *
  */
 
 public class FinancialReport {
 
-    Timestamp created;
+    Timestamp created = new Timestamp(System.currentTimeMillis());
     Product highestMarginProduct;
     Product lowestMarginProduct;
     Product mostSoldProduct;
     Product leastSoldProduct;
-    Double totalTurnover;
-    Double totalCost;
-    Double totalMargin;
+    long totalTurnover;
+    long totalCost;
+    long totalMargin;
 
+    /**
+     * The time the report was generated, cached reports keep the time they were computed.
+     */
     public Timestamp getCreatedTime() {
-        return this.created = new Timestamp(System.currentTimeMillis());
+        return created;
+    }
+
+    public void setCreatedTime(Timestamp created) {
+        this.created = created;
     }
 
     public Product getHighestMarginProduct() {
@@ -49,31 +61,46 @@ public class FinancialReport {
         this.mostSoldProduct = mostSoldProduct;
     }
 
-    public Double getTotalTurnover() {
-        return totalTurnover;
-    }
-
     public Product getLeastSoldProduct(){return leastSoldProduct;}
 
     public void setLeastSoldProduct(Product leastSoldProduct){this.leastSoldProduct = leastSoldProduct;}
 
-    public void setTotalTurnover(Double totalTurnover) {
+    public BigDecimal getTotalTurnover() {
+        return MinorUnits.toDecimal(totalTurnover);
+    }
+
+    @JsonIgnore
+    public long getTotalTurnoverMinor() {
+        return totalTurnover;
+    }
+
+    public void setTotalTurnoverMinor(long totalTurnover) {
         this.totalTurnover = totalTurnover;
     }
 
-    public Double getTotalCost() {
+    public BigDecimal getTotalCost() {
+        return MinorUnits.toDecimal(totalCost);
+    }
+
+    @JsonIgnore
+    public long getTotalCostMinor() {
         return totalCost;
     }
 
-    public void setTotalCost(Double totalCost) {
+    public void setTotalCostMinor(long totalCost) {
         this.totalCost = totalCost;
     }
 
-    public Double getTotalMargin() {
+    public BigDecimal getTotalMargin() {
+        return MinorUnits.toDecimal(totalMargin);
+    }
+
+    @JsonIgnore
+    public long getTotalMarginMinor() {
         return totalMargin;
     }
 
-    public void setTotalMargin(Double totalMargin) {
+    public void setTotalMarginMinor(long totalMargin) {
         this.totalMargin = totalMargin;
     }
 }
@@ -0,0 +1,34 @@
+package no.gjensidige.product.model;
+
+import java.math.BigDecimal;
+
+/**
+ *  MarginBucket
+ *
+ *  Number of products with a margin from from (inclusive) to to.
+ *
+ */
+public class MarginBucket {
+
+    BigDecimal from;
+    BigDecimal to;
+    long count;
+
+    public MarginBucket(BigDecimal from, BigDecimal to, long count) {
+        this.from = from;
+        this.to = to;
+        this.count = count;
+    }
+
+    public BigDecimal getFrom() {
+        return from;
+    }
+
+    public BigDecimal getTo() {
+        return to;
+    }
+
+    public long getCount() {
+        return count;
+    }
+}
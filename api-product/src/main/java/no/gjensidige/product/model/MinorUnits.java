@@ -0,0 +1,58 @@
+package no.gjensidige.product.model;
+
+import java.math.BigDecimal;
+
+/**
+ * MinorUnits
+ *
+ * Money is kept as a long number of minor units (øre, two decimals) and only turned into
+ * a BigDecimal at the JSON boundary. Amounts with more decimals than that are rejected
+ * instead of rounded.
+ *
+ * Prices and costs are bounded by MAX_AMOUNT and counts by MAX_COUNT, the same bounds as
+ * the check constraints in V5__fixed_point_money.sql, so the figures of a single product
+ * always fit in a long. Sums over many products are overflow checked by their callers.
+ *
+ */
+public final class MinorUnits {
+
+    public static final int SCALE = 2;
+
+    /** 100 000 000.00 */
+    public static final long MAX_AMOUNT = 10_000_000_000L;
+
+    public static final long MAX_COUNT = 100_000_000L;
+
+    private MinorUnits() {
+    }
+
+    /**
+     * @throws IllegalArgumentException if amount has more than two decimals or is out of bounds
+     */
+    public static long of(BigDecimal amount) {
+        long minor;
+        try {
+            minor = amount.movePointRight(SCALE).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Amount " + amount + " has more than " + SCALE + " decimals or is too large");
+        }
+        if (minor < 0 || minor > MAX_AMOUNT) {
+            throw new IllegalArgumentException("Amount " + amount + " is outside of 0 to " + toDecimal(MAX_AMOUNT));
+        }
+        return minor;
+    }
+
+    /**
+     * @throws IllegalArgumentException if count is out of bounds
+     */
+    public static long checkCount(long count) {
+        if (count < 0 || count > MAX_COUNT) {
+            throw new IllegalArgumentException("Count " + count + " is outside of 0 to " + MAX_COUNT);
+        }
+        return count;
+    }
+
+    public static BigDecimal toDecimal(long minor) {
+        return BigDecimal.valueOf(minor, SCALE);
+    }
+}
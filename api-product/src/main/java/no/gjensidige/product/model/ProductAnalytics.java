@@ -0,0 +1,104 @@
+package no.gjensidige.product.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.math.BigDecimal;
+
+/**
+ *  ProductAnalytics
+ *
+ *  Totals over all products, kept in minor units. The average unit price and cost are
+ *  weighted by the number sold, the margin ratio is the total margin relative to the
+ *  total turnover.
+ *
+ */
+public class ProductAnalytics {
+
+    long productCount;
+    long unitsSold;
+    long totalTurnover;
+    long totalCost;
+    long totalMargin;
+    BigDecimal averageUnitPrice;
+    BigDecimal averageUnitCost;
+    Double marginRatio;
+
+    public long getProductCount() {
+        return productCount;
+    }
+
+    public void setProductCount(long productCount) {
+        this.productCount = productCount;
+    }
+
+    public long getUnitsSold() {
+        return unitsSold;
+    }
+
+    public void setUnitsSold(long unitsSold) {
+        this.unitsSold = unitsSold;
+    }
+
+    public BigDecimal getTotalTurnover() {
+        return MinorUnits.toDecimal(totalTurnover);
+    }
+
+    @JsonIgnore
+    public long getTotalTurnoverMinor() {
+        return totalTurnover;
+    }
+
+    public void setTotalTurnoverMinor(long totalTurnover) {
+        this.totalTurnover = totalTurnover;
+    }
+
+    public BigDecimal getTotalCost() {
+        return MinorUnits.toDecimal(totalCost);
+    }
+
+    @JsonIgnore
+    public long getTotalCostMinor() {
+        return totalCost;
+    }
+
+    public void setTotalCostMinor(long totalCost) {
+        this.totalCost = totalCost;
+    }
+
+    public BigDecimal getTotalMargin() {
+        return MinorUnits.toDecimal(totalMargin);
+    }
+
+    @JsonIgnore
+    public long getTotalMarginMinor() {
+        return totalMargin;
+    }
+
+    public void setTotalMarginMinor(long totalMargin) {
+        this.totalMargin = totalMargin;
+    }
+
+    public BigDecimal getAverageUnitPrice() {
+        return averageUnitPrice;
+    }
+
+    public void setAverageUnitPrice(BigDecimal averageUnitPrice) {
+        this.averageUnitPrice = averageUnitPrice;
+    }
+
+    public BigDecimal getAverageUnitCost() {
+        return averageUnitCost;
+    }
+
+    public void setAverageUnitCost(BigDecimal averageUnitCost) {
+        this.averageUnitCost = averageUnitCost;
+    }
+
+    public Double getMarginRatio() {
+        return marginRatio;
+    }
+
+    public void setMarginRatio(Double marginRatio) {
+        this.marginRatio = marginRatio;
+    }
+}
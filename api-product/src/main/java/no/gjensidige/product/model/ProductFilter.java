@@ -0,0 +1,86 @@
+package no.gjensidige.product.model;
+
+import java.math.BigDecimal;
+
+/**
+ *  ProductFilter
+ *
+ *  Search criteria of GET /products/search, bound from the query parameters. Every
+ *  criterion is optional and null means no restriction, ranges include their bounds.
+ *  Prices and costs are decimals in the query and minor units in Java, like ProductDTO.
+ *
+ */
+public class ProductFilter {
+
+    String category;
+    String namePrefix;
+    Long minPriceMinor;
+    Long maxPriceMinor;
+    Long minCostMinor;
+    Long maxCostMinor;
+    Long minNumberSold;
+
+    /**
+     * A name prefix, price bound or minimum sold, the criteria whose index is a range scan.
+     */
+    public boolean hasIndexedRange() {
+        return (namePrefix != null && !namePrefix.isEmpty()) || minPriceMinor != null || maxPriceMinor != null
+                || minNumberSold != null;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public String getNamePrefix() {
+        return namePrefix;
+    }
+
+    public void setNamePrefix(String namePrefix) {
+        this.namePrefix = namePrefix;
+    }
+
+    public Long getMinPriceMinor() {
+        return minPriceMinor;
+    }
+
+    public void setMinPrice(BigDecimal minPrice) {
+        this.minPriceMinor = minPrice != null ? MinorUnits.of(minPrice) : null;
+    }
+
+    public Long getMaxPriceMinor() {
+        return maxPriceMinor;
+    }
+
+    public void setMaxPrice(BigDecimal maxPrice) {
+        this.maxPriceMinor = maxPrice != null ? MinorUnits.of(maxPrice) : null;
+    }
+
+    public Long getMinCostMinor() {
+        return minCostMinor;
+    }
+
+    public void setMinCost(BigDecimal minCost) {
+        this.minCostMinor = minCost != null ? MinorUnits.of(minCost) : null;
+    }
+
+    public Long getMaxCostMinor() {
+        return maxCostMinor;
+    }
+
+    public void setMaxCost(BigDecimal maxCost) {
+        this.maxCostMinor = maxCost != null ? MinorUnits.of(maxCost) : null;
+    }
+
+    public Long getMinNumberSold() {
+        return minNumberSold;
+    }
+
+    public void setMinNumberSold(Long minNumberSold) {
+        this.minNumberSold = minNumberSold != null ? MinorUnits.checkCount(minNumberSold) : null;
+    }
+}
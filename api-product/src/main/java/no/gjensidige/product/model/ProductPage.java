@@ -0,0 +1,31 @@
+package no.gjensidige.product.model;
+
+import no.gjensidige.product.entity.Product;
+
+import java.util.List;
+
+/**
+ *  ProductPage
+ *
+ *  One page of a keyset paginated product listing. nextToken is passed back as the
+ *  token parameter to fetch the following page and is null on the last page.
+ *
+ */
+public class ProductPage {
+
+    List<Product> items;
+    String nextToken;
+
+    public ProductPage(List<Product> items, String nextToken) {
+        this.items = items;
+        this.nextToken = nextToken;
+    }
+
+    public List<Product> getItems() {
+        return items;
+    }
+
+    public String getNextToken() {
+        return nextToken;
+    }
+}
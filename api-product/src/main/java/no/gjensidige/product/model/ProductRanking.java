@@ -0,0 +1,43 @@
+package no.gjensidige.product.model;
+
+import no.gjensidige.product.entity.Product;
+
+import java.util.List;
+
+/**
+ * ProductRanking
+ *
+ * The products with the highest (top) and lowest (bottom) value of a metric, best first
+ * in both lists. Products with equal values are ranked by id.
+ *
+ */
+public class ProductRanking {
+
+    RankingMetric metric;
+    List<Product> top;
+    List<Product> bottom;
+
+    public RankingMetric getMetric() {
+        return metric;
+    }
+
+    public void setMetric(RankingMetric metric) {
+        this.metric = metric;
+    }
+
+    public List<Product> getTop() {
+        return top;
+    }
+
+    public void setTop(List<Product> top) {
+        this.top = top;
+    }
+
+    public List<Product> getBottom() {
+        return bottom;
+    }
+
+    public void setBottom(List<Product> bottom) {
+        this.bottom = bottom;
+    }
+}
@@ -0,0 +1,19 @@
+package no.gjensidige.product.model;
+
+/**
+ * RankingMetric
+ *
+ * The figure products are ranked by in a ProductRanking.
+ *
+ */
+public enum RankingMetric {
+
+    /** Turnover minus cost, numberSold * (unitPrice - unitCost). */
+    MARGIN,
+
+    /** numberSold * unitPrice. */
+    TURNOVER,
+
+    /** numberSold. */
+    UNITS_SOLD
+}
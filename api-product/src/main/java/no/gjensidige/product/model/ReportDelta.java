@@ -0,0 +1,60 @@
+package no.gjensidige.product.model;
+
+import no.gjensidige.product.entity.ReportSnapshot;
+
+import java.math.BigDecimal;
+
+/**
+ *  ReportDelta
+ *
+ *  The change of the report totals between two stored snapshots. The ratios are relative
+ *  to the earlier snapshot and null when its total was zero.
+ *
+ */
+
+public class ReportDelta {
+
+    ReportSnapshot from;
+    ReportSnapshot to;
+
+    public ReportDelta(ReportSnapshot from, ReportSnapshot to) {
+        this.from = from;
+        this.to = to;
+    }
+
+    public ReportSnapshot getFrom() {
+        return from;
+    }
+
+    public ReportSnapshot getTo() {
+        return to;
+    }
+
+    public BigDecimal getTurnoverChange() {
+        return MinorUnits.toDecimal(Math.subtractExact(to.getTotalTurnoverMinor(), from.getTotalTurnoverMinor()));
+    }
+
+    public Double getTurnoverChangeRatio() {
+        return ratio(from.getTotalTurnoverMinor(), to.getTotalTurnoverMinor());
+    }
+
+    public BigDecimal getCostChange() {
+        return MinorUnits.toDecimal(Math.subtractExact(to.getTotalCostMinor(), from.getTotalCostMinor()));
+    }
+
+    public Double getCostChangeRatio() {
+        return ratio(from.getTotalCostMinor(), to.getTotalCostMinor());
+    }
+
+    public BigDecimal getMarginChange() {
+        return MinorUnits.toDecimal(Math.subtractExact(to.getTotalMarginMinor(), from.getTotalMarginMinor()));
+    }
+
+    public Double getMarginChangeRatio() {
+        return ratio(from.getTotalMarginMinor(), to.getTotalMarginMinor());
+    }
+
+    private static Double ratio(long before, long after) {
+        return before != 0 ? (double) (after - before) / Math.abs(before) : null;
+    }
+}
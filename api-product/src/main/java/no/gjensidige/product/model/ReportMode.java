@@ -0,0 +1,25 @@
+package no.gjensidige.product.model;
+
+/**
+ * ReportMode
+ *
+ * Selects how the financial report is produced, see report.mode in application.properties.
+ *
+ */
+public enum ReportMode {
+
+    /** Load the full product table and compute the report on every request. */
+    SCAN,
+
+    /** Serve the report from the running aggregates kept by ReportAggregator. */
+    INCREMENTAL,
+
+    /** Fetch and reduce ranges of product ids concurrently, see ParallelReportGenerator. */
+    PARALLEL,
+
+    /** Let the database compute the sums and look up the extremes through its indexes. */
+    DATABASE,
+
+    /** Scan the off-heap columns of ProductSnapshot and load only the four extreme products. */
+    COLUMNAR
+}
@@ -1,13 +1,168 @@
 package no.gjensidige.product.repository;
 
+import jakarta.persistence.QueryHint;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
 import no.gjensidige.product.entity.Product;
+import no.gjensidige.product.model.ProductFilter;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product,Long> {
+public interface ProductRepository extends JpaRepository<Product,Long>, JpaSpecificationExecutor<Product> {
 
     List<Product> findAll();
+
+    List<Product> findByIdBetween(Long fromId, Long toId);
+
+    // Keyset pagination, the cost of a page does not depend on how deep it is
+
+    List<Product> findByIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
+
+    List<Product> findByCategoryAndIdGreaterThanOrderByIdAsc(String category, Long afterId, Limit limit);
+
+    List<ProductFigures> findFiguresByIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
+
+    /**
+     * The products after afterId that match every criterion set in the filter. Only the set
+     * criteria become predicates, so H2 can use the indexes on category, product_name,
+     * unit_price_minor and number_sold (V3, V5 and V8__product_search_indexes.sql).
+     *
+     * Given id > ? H2 walks the primary key in id order and filters, which needs no sort
+     * but reads the whole table when few products match. With byRange the keyset condition
+     * is written as id + 0 > ?, which H2 only filters on, so it reads the index of a range
+     * criterion instead and sorts the matches. The id after the range in those indexes can
+     * not be seeked anyway.
+     */
+    static Specification<Product> search(ProductFilter filter, long afterId, boolean byRange) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            Expression<Long> id = root.get("id");
+            predicates.add(cb.greaterThan(byRange ? cb.sum(id, 0L) : id, afterId));
+
+            if (filter.getCategory() != null) {
+                predicates.add(cb.equal(root.get("category"), filter.getCategory()));
+            }
+            if (filter.getNamePrefix() != null && !filter.getNamePrefix().isEmpty()) {
+                // A pattern with a fixed prefix is an index range scan
+                String prefix = filter.getNamePrefix().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+                predicates.add(cb.like(root.get("productName"), prefix + "%", '\\'));
+            }
+            if (filter.getMinPriceMinor() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("unitPriceMinor"), filter.getMinPriceMinor()));
+            }
+            if (filter.getMaxPriceMinor() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("unitPriceMinor"), filter.getMaxPriceMinor()));
+            }
+            if (filter.getMinCostMinor() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("unitCostMinor"), filter.getMinCostMinor()));
+            }
+            if (filter.getMaxCostMinor() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("unitCostMinor"), filter.getMaxCostMinor()));
+            }
+            if (filter.getMinNumberSold() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("numberSold"), filter.getMinNumberSold()));
+            }
+
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    /**
+     * Forward-only cursor over all products, must be consumed inside a transaction and closed.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Product> streamAllByOrderByIdAsc();
+
+    /**
+     * The figures of all products grouped by category, walking product_category_id_idx
+     * (V3__product_category_index.sql) so no sort is needed. Must be consumed inside a transaction
+     * and closed.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<CategoryFigures> streamCategoryFiguresByOrderByCategoryAscIdAsc();
+
+    /**
+     * Changes with every insert, update and delete: inserts and deletes change the count,
+     * or the id sum when they balance out since ids are never reused, and updates
+     * increment a version.
+     */
+    @Query("select count(p) as productCount, coalesce(sum(p.id), 0) as idSum, coalesce(sum(p.version), 0) as versionSum from Product p")
+    CatalogVersion findCatalogVersion();
+
+    @Query("select min(p.id) as minId, max(p.id) as maxId from Product p")
+    IdRange findIdRange();
+
+    // Sums of minor units, the database raises an error instead of overflowing the cast
+    @Query("select cast(sum(p.numberSold * p.unitPriceMinor) as Long) as totalTurnover, "
+            + "cast(sum(p.numberSold * p.unitCostMinor) as Long) as totalCost, count(p) as productCount from Product p")
+    ReportTotals findReportTotals();
+
+    // The extreme lookups below are backed by the indexes in V2__report_indexes.sql
+
+    @Query(value = "select * from product where margin is not null order by margin desc, id limit 1", nativeQuery = true)
+    Optional<Product> findHighestMarginProduct();
+
+    @Query(value = "select * from product where margin is not null order by margin, id limit 1", nativeQuery = true)
+    Optional<Product> findLowestMarginProduct();
+
+    @Query(value = "select * from product where number_sold is not null order by number_sold desc, id limit 1", nativeQuery = true)
+    Optional<Product> findMostSoldProduct();
+
+    @Query(value = "select * from product where number_sold is not null order by number_sold, id limit 1", nativeQuery = true)
+    Optional<Product> findLeastSoldProduct();
+
+    interface ReportTotals {
+
+        Long getTotalTurnover();
+
+        Long getTotalCost();
+
+        Long getProductCount();
+    }
+
+    /**
+     * The figures of a product a report needs, read without building the entity, and the
+     * version they belong to.
+     */
+    record ProductFigures(Long id, Long unitPriceMinor, Long unitCostMinor, Long numberSold, Long version) {
+    }
+
+    record CategoryFigures(Long id, String category, Long unitPriceMinor, Long unitCostMinor, Long numberSold) {
+    }
+
+    interface CatalogVersion {
+
+        Long getProductCount();
+
+        Long getIdSum();
+
+        Long getVersionSum();
+    }
+
+    interface ProductId {
+
+        Long getId();
+    }
+
+    interface IdRange {
+
+        Long getMinId();
+
+        Long getMaxId();
+    }
 }
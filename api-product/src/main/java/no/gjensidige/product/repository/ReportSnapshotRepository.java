@@ -0,0 +1,28 @@
+package no.gjensidige.product.repository;
+
+import no.gjensidige.product.entity.ReportSnapshot;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ReportSnapshotRepository extends JpaRepository<ReportSnapshot,Long> {
+
+    // All three are seeks or range scans on report_snapshot_created_time_idx (V6__report_snapshot.sql)
+
+    Optional<ReportSnapshot> findFirstByCreatedTimeLessThanEqualOrderByCreatedTimeDescIdDesc(Timestamp time);
+
+    List<ReportSnapshot> findByCreatedTimeBetweenOrderByCreatedTimeAscIdAsc(Timestamp from, Timestamp to, Limit limit);
+
+    @Modifying
+    @Transactional
+    @Query("delete from ReportSnapshot s where s.createdTime < :time")
+    int deleteCreatedBefore(Timestamp time);
+}
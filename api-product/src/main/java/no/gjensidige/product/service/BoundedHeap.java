@@ -0,0 +1,114 @@
+package no.gjensidige.product.service;
+
+/**
+ * BoundedHeap
+ *
+ * Keeps the ids of the k highest or k lowest values offered, in two primitive arrays used
+ * as a binary heap with the last kept entry at the root. Offering n values costs
+ * O(n log k) and the heap never holds more than k entries. Equal values rank by id, the
+ * lowest first.
+ *
+ */
+final class BoundedHeap {
+
+    private final boolean highest;
+    private final long[] values;
+    private final long[] ids;
+    private int size;
+
+    private BoundedHeap(int capacity, boolean highest) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.highest = highest;
+        this.values = new long[capacity];
+        this.ids = new long[capacity];
+    }
+
+    static BoundedHeap highest(int capacity) {
+        return new BoundedHeap(capacity, true);
+    }
+
+    static BoundedHeap lowest(int capacity) {
+        return new BoundedHeap(capacity, false);
+    }
+
+    void offer(long value, long id) {
+        if (size < values.length) {
+            values[size] = value;
+            ids[size] = id;
+            siftUp(size++);
+        } else if (ranksBefore(value, id, values[0], ids[0])) {
+            values[0] = value;
+            ids[0] = id;
+            siftDown(0);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * The kept ids in rank order, the heap is empty afterwards.
+     */
+    long[] drain() {
+        long[] ranked = new long[size];
+        while (size > 0) {
+            ranked[size - 1] = ids[0];
+            size--;
+            values[0] = values[size];
+            ids[0] = ids[size];
+            siftDown(0);
+        }
+        return ranked;
+    }
+
+    private boolean ranksBefore(long value, long id, long otherValue, long otherId) {
+        if (value != otherValue) {
+            return highest ? value > otherValue : value < otherValue;
+        }
+        return id < otherId;
+    }
+
+    private boolean ranksBefore(int i, int j) {
+        return ranksBefore(values[i], ids[i], values[j], ids[j]);
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (!ranksBefore(parent, i)) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                return;
+            }
+            if (child + 1 < size && ranksBefore(child, child + 1)) {
+                child++;
+            }
+            if (!ranksBefore(i, child)) {
+                return;
+            }
+            swap(i, child);
+            i = child;
+        }
+    }
+
+    private void swap(int i, int j) {
+        long value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+        long id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+    }
+}
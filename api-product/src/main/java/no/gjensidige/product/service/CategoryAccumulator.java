@@ -0,0 +1,40 @@
+package no.gjensidige.product.service;
+
+import no.gjensidige.product.entity.Product;
+import no.gjensidige.product.model.CategoryReport;
+
+import java.util.Map;
+
+/**
+ * CategoryAccumulator
+ *
+ * The FiguresAccumulator reduction for the products of one category. Only the ids of
+ * the extreme products are kept, they are resolved once all categories are reduced.
+ * Products must be accepted in id order for ties to resolve to the lowest id.
+ *
+ */
+public class CategoryAccumulator extends FiguresAccumulator {
+
+    private final String category;
+
+    public CategoryAccumulator(String category) {
+        this.category = category;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public CategoryReport toReport(Map<Long, Product> productsById) {
+        CategoryReport report = new CategoryReport();
+        report.setCategory(category);
+        report.setTotalTurnoverMinor(getTotalTurnoverMinor());
+        report.setTotalCostMinor(getTotalCostMinor());
+        report.setTotalMarginMinor(getTotalMarginMinor());
+        report.setHighestMarginProduct(productsById.get(getHighestMarginId()));
+        report.setLowestMarginProduct(productsById.get(getLowestMarginId()));
+        report.setMostSoldProduct(productsById.get(getMostSoldId()));
+        report.setLeastSoldProduct(productsById.get(getLeastSoldId()));
+        return report;
+    }
+}
@@ -0,0 +1,177 @@
+package no.gjensidige.product.service;
+
+/**
+ * FiguresAccumulator
+ *
+ * The single-pass reduction behind every financial report: totals and the ids of the
+ * four extreme products, fed with primitive figures. Extremes are tracked with strict
+ * comparisons so the first of several equal candidates is kept, the same as
+ * Collections.max/min, and products accepted in id order resolve ties to the lowest id.
+ *
+ * All amounts are exact sums of minor units, an overflow throws ArithmeticException
+ * instead of wrapping around. Accumulators over consecutive slices of the products can
+ * be merged, the totals do not depend on how the products were sliced.
+ *
+ */
+public class FiguresAccumulator {
+
+    // Extremes a product or a merged accumulator took over, returned by accept and merge
+    static final int HIGHEST_MARGIN = 1;
+    static final int LOWEST_MARGIN = 2;
+    static final int MOST_SOLD = 4;
+    static final int LEAST_SOLD = 8;
+
+    private static final int ALL = HIGHEST_MARGIN | LOWEST_MARGIN | MOST_SOLD | LEAST_SOLD;
+
+    private long count;
+    private long unitsSold;
+    private long totalTurnover;
+    private long totalCost;
+
+    private long highestMarginId;
+    private long highestMargin;
+    private long lowestMarginId;
+    private long lowestMargin;
+
+    private long mostSoldId;
+    private long mostSold;
+    private long leastSoldId;
+    private long leastSold;
+
+    /**
+     * Adds a product and returns the extremes it is now the candidate for.
+     */
+    public int accept(long id, long unitPriceMinor, long unitCostMinor, long numberSold) {
+        long turnover = Math.multiplyExact(numberSold, unitPriceMinor);
+        long cost = Math.multiplyExact(numberSold, unitCostMinor);
+        long margin = Math.subtractExact(turnover, cost);
+
+        totalTurnover = Math.addExact(totalTurnover, turnover);
+        totalCost = Math.addExact(totalCost, cost);
+        unitsSold = Math.addExact(unitsSold, numberSold);
+
+        int taken = 0;
+        if (count == 0) {
+            highestMarginId = lowestMarginId = mostSoldId = leastSoldId = id;
+            highestMargin = lowestMargin = margin;
+            mostSold = leastSold = numberSold;
+            taken = ALL;
+        } else {
+            if (margin > highestMargin) {
+                highestMargin = margin;
+                highestMarginId = id;
+                taken |= HIGHEST_MARGIN;
+            }
+            if (margin < lowestMargin) {
+                lowestMargin = margin;
+                lowestMarginId = id;
+                taken |= LOWEST_MARGIN;
+            }
+            if (numberSold > mostSold) {
+                mostSold = numberSold;
+                mostSoldId = id;
+                taken |= MOST_SOLD;
+            }
+            if (numberSold < leastSold) {
+                leastSold = numberSold;
+                leastSoldId = id;
+                taken |= LEAST_SOLD;
+            }
+        }
+        count++;
+        return taken;
+    }
+
+    /**
+     * Merges an accumulator over products that come after the ones seen by this one, so
+     * on ties the candidates of this accumulator are kept. Returns the extremes taken
+     * over from other.
+     */
+    public int merge(FiguresAccumulator other) {
+        if (other.isEmpty()) {
+            return 0;
+        }
+
+        totalTurnover = Math.addExact(totalTurnover, other.totalTurnover);
+        totalCost = Math.addExact(totalCost, other.totalCost);
+        unitsSold = Math.addExact(unitsSold, other.unitsSold);
+
+        int taken = 0;
+        if (isEmpty() || other.highestMargin > highestMargin) {
+            highestMargin = other.highestMargin;
+            highestMarginId = other.highestMarginId;
+            taken |= HIGHEST_MARGIN;
+        }
+        if (isEmpty() || other.lowestMargin < lowestMargin) {
+            lowestMargin = other.lowestMargin;
+            lowestMarginId = other.lowestMarginId;
+            taken |= LOWEST_MARGIN;
+        }
+        if (isEmpty() || other.mostSold > mostSold) {
+            mostSold = other.mostSold;
+            mostSoldId = other.mostSoldId;
+            taken |= MOST_SOLD;
+        }
+        if (isEmpty() || other.leastSold < leastSold) {
+            leastSold = other.leastSold;
+            leastSoldId = other.leastSoldId;
+            taken |= LEAST_SOLD;
+        }
+        count += other.count;
+        return taken;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getUnitsSold() {
+        return unitsSold;
+    }
+
+    public long getTotalTurnoverMinor() {
+        return totalTurnover;
+    }
+
+    public long getTotalCostMinor() {
+        return totalCost;
+    }
+
+    public long getTotalMarginMinor() {
+        return Math.subtractExact(totalTurnover, totalCost);
+    }
+
+    // The extremes below are only set when count > 0
+
+    public long getHighestMargin() {
+        return highestMargin;
+    }
+
+    public long getLowestMargin() {
+        return lowestMargin;
+    }
+
+    public long getHighestMarginId() {
+        return highestMarginId;
+    }
+
+    public long getLowestMarginId() {
+        return lowestMarginId;
+    }
+
+    public long getMostSoldId() {
+        return mostSoldId;
+    }
+
+    public long getLeastSoldId() {
+        return leastSoldId;
+    }
+
+    public long[] getExtremeIds() {
+        return new long[]{highestMarginId, lowestMarginId, mostSoldId, leastSoldId};
+    }
+}
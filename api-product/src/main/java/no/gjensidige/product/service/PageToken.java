@@ -0,0 +1,38 @@
+package no.gjensidige.product.service;
+
+import no.gjensidige.product.exception.InvalidPageTokenException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * PageToken
+ *
+ * Encodes the last product id of a page as an opaque continuation token, so clients do
+ * not come to depend on its contents.
+ *
+ */
+final class PageToken {
+
+    private static final String PREFIX = "v1:";
+
+    private PageToken() {
+    }
+
+    static String encode(long lastId) {
+        byte[] raw = (PREFIX + lastId).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+
+    static long decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            if (!raw.startsWith(PREFIX)) {
+                throw new InvalidPageTokenException(token);
+            }
+            return Long.parseLong(raw.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidPageTokenException(token);
+        }
+    }
+}
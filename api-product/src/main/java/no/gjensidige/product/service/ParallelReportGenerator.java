@@ -0,0 +1,87 @@
+package no.gjensidige.product.service;
+
+import no.gjensidige.product.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * ParallelReportGenerator
+ *
+ * Splits the product id space into ranges of at most report.parallel.range-size ids and
+ * lets a dedicated fork-join pool fetch and reduce every range on its own worker. The
+ * partial accumulators are merged in id order, so the result is the same as a sequential
+ * scan no matter how the ranges were split.
+ *
+ * Each worker holds a database connection while fetching, keep report.parallelism below
+ * the size of the connection pool.
+ *
+ */
+@Component
+public class ParallelReportGenerator {
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Value("${report.parallelism:4}")
+    int parallelism = 4;
+
+    @Value("${report.parallel.range-size:50000}")
+    long rangeSize = 50_000;
+
+    private ForkJoinPool pool;
+
+    public ReportAccumulator accumulate() {
+        ProductRepository.IdRange idRange = productRepository.findIdRange();
+
+        if (idRange == null || idRange.getMinId() == null) {
+            return new ReportAccumulator();
+        }
+
+        return pool().invoke(new RangeTask(idRange.getMinId(), idRange.getMaxId()));
+    }
+
+    private synchronized ForkJoinPool pool() {
+        if (pool == null) {
+            pool = new ForkJoinPool(parallelism);
+        }
+        return pool;
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    private class RangeTask extends RecursiveTask<ReportAccumulator> {
+
+        private final long fromId;
+        private final long toId;
+
+        RangeTask(long fromId, long toId) {
+            this.fromId = fromId;
+            this.toId = toId;
+        }
+
+        @Override
+        protected ReportAccumulator compute() {
+            if (toId - fromId < rangeSize) {
+                return ReportAccumulator.of(productRepository.findByIdBetween(fromId, toId));
+            }
+
+            long middle = fromId + (toId - fromId) / 2;
+            RangeTask lower = new RangeTask(fromId, middle);
+            RangeTask upper = new RangeTask(middle + 1, toId);
+            lower.fork();
+            ReportAccumulator upperResult = upper.compute();
+
+            return lower.join().merge(upperResult);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package no.gjensidige.product.service;
+
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import no.gjensidige.product.dto.ProductDTO;
+import no.gjensidige.product.entity.Product;
+import no.gjensidige.product.event.ProductChangedEvent;
+import no.gjensidige.product.model.BatchItemResult;
+import no.gjensidige.product.model.BatchItemResult.Status;
+import no.gjensidige.product.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * ProductBatchService
+ *
+ * Bulk create, update and delete of products. The input is split into chunks of
+ * product.batch.chunk-size items that are written in their own transaction, so Hibernate
+ * can send the statements of a chunk as JDBC batches (hibernate.jdbc.batch_size). If a
+ * chunk fails it is rolled back as a whole and its items are reported as FAILED, the
+ * other chunks are not affected. The change events of a chunk are published once it has
+ * committed, a failing listener is logged and does not change the results.
+ *
+ */
+@Service
+@Timed(value = "product.batch.service", histogram = true)
+public class ProductBatchService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductBatchService.class);
+
+    static final String CHUNK_FAILED = "Chunk rolled back";
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    ProductService productService;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
+
+    @Value("${product.batch.chunk-size:1000}")
+    int chunkSize = 1000;
+
+    public List<BatchItemResult> createProducts(List<ProductDTO> inputProducts) {
+        return process(inputProducts, this::createChunk);
+    }
+
+    public List<BatchItemResult> updateProducts(List<ProductDTO> inputProducts) {
+        return process(inputProducts, this::updateChunk);
+    }
+
+    public List<BatchItemResult> deleteProducts(List<ProductDTO> inputProducts) {
+        return process(inputProducts, this::deleteChunk);
+    }
+
+    private List<BatchItemResult> process(List<ProductDTO> inputProducts, ChunkWriter writer) {
+        if (inputProducts == null) {
+            throw new IllegalArgumentException("Product list cannot be null");
+        }
+
+        BatchItemResult[] results = new BatchItemResult[inputProducts.size()];
+
+        for (int from = 0; from < inputProducts.size(); from += chunkSize) {
+            Chunk chunk = new Chunk(inputProducts, from, Math.min(from + chunkSize, inputProducts.size()), results);
+
+            try {
+                transactionTemplate.execute(status -> {
+                    writer.write(chunk);
+                    return null;
+                });
+            } catch (RuntimeException e) {
+                // The cause can hold SQL and values, it is only logged
+                log.warn("Batch items {} to {} rolled back", chunk.from, chunk.to - 1, e);
+                chunk.fail();
+                continue;
+            }
+
+            // The chunk is committed whatever a listener does, so its results stand
+            publish(chunk.events);
+        }
+
+        return Arrays.asList(results);
+    }
+
+    private void publish(List<ProductChangedEvent> events) {
+        for (ProductChangedEvent event : events) {
+            try {
+                eventPublisher.publishEvent(event);
+            } catch (RuntimeException e) {
+                log.warn("Announcing the change of product {} failed", event.getProduct().getId(), e);
+            }
+        }
+    }
+
+    private void createChunk(Chunk chunk) {
+        List<Product> products = new ArrayList<>();
+        List<Integer> indexes = new ArrayList<>();
+
+        for (int i = chunk.from; i < chunk.to; i++) {
+            ProductDTO inputProduct = chunk.inputProducts.get(i);
+            if (inputProduct == null) {
+                chunk.results[i] = new BatchItemResult(i, null, Status.INVALID, "Product cannot be null");
+                continue;
+            }
+
+            Product product = productService.convertToEntity(inputProduct);
+            // Ids are always assigned from the sequence
+            product.setId(null);
+            products.add(product);
+            indexes.add(i);
+        }
+
+        productRepository.saveAll(products);
+        entityManager.flush();
+        entityManager.clear();
+
+        for (int k = 0; k < products.size(); k++) {
+            Product product = products.get(k);
+            chunk.results[indexes.get(k)] = BatchItemResult.of(indexes.get(k), product.getId(), Status.CREATED);
+            chunk.events.add(ProductChangedEvent.saved(product));
+        }
+    }
+
+    private void updateChunk(Chunk chunk) {
+        Map<Long, Product> existingProducts = findExisting(chunk);
+
+        for (int i = chunk.from; i < chunk.to; i++) {
+            if (chunk.results[i] != null) {
+                continue;
+            }
+
+            ProductDTO inputProduct = chunk.inputProducts.get(i);
+            Product product = existingProducts.get(inputProduct.getId());
+            if (product == null) {
+                chunk.results[i] = BatchItemResult.of(i, inputProduct.getId(), Status.NOT_FOUND);
+                continue;
+            }
+
+            productService.mergeIntoEntity(inputProduct, product);
+            chunk.results[i] = BatchItemResult.of(i, product.getId(), Status.UPDATED);
+        }
+
+        // Dirty checking turns the changes into batched updates
+        entityManager.flush();
+        entityManager.clear();
+
+        existingProducts.values().forEach(product -> chunk.events.add(ProductChangedEvent.saved(product)));
+    }
+
+    private void deleteChunk(Chunk chunk) {
+        Map<Long, Product> existingProducts = findExisting(chunk);
+
+        for (int i = chunk.from; i < chunk.to; i++) {
+            if (chunk.results[i] != null) {
+                continue;
+            }
+
+            Long id = chunk.inputProducts.get(i).getId();
+            Status status = existingProducts.containsKey(id) ? Status.DELETED : Status.NOT_FOUND;
+            chunk.results[i] = BatchItemResult.of(i, id, status);
+        }
+
+        productRepository.deleteAllInBatch(existingProducts.values());
+
+        existingProducts.values().forEach(product -> chunk.events.add(ProductChangedEvent.deleted(product)));
+    }
+
+    /**
+     * Loads the products referenced by a chunk with one query, items without an id are marked INVALID.
+     */
+    private Map<Long, Product> findExisting(Chunk chunk) {
+        Set<Long> ids = new LinkedHashSet<>();
+
+        for (int i = chunk.from; i < chunk.to; i++) {
+            ProductDTO inputProduct = chunk.inputProducts.get(i);
+            if (inputProduct == null || inputProduct.getId() == null) {
+                chunk.results[i] = new BatchItemResult(i, null, Status.INVALID, "Product id is required");
+            } else {
+                ids.add(inputProduct.getId());
+            }
+        }
+
+        Map<Long, Product> existingProducts = new HashMap<>();
+        if (!ids.isEmpty()) {
+            productRepository.findAllById(ids).forEach(product -> existingProducts.put(product.getId(), product));
+        }
+        return existingProducts;
+    }
+
+    private interface ChunkWriter {
+
+        void write(Chunk chunk);
+    }
+
+    private static final class Chunk {
+
+        final List<ProductDTO> inputProducts;
+        final int from;
+        final int to;
+        final BatchItemResult[] results;
+        final List<ProductChangedEvent> events = new ArrayList<>();
+
+        Chunk(List<ProductDTO> inputProducts, int from, int to, BatchItemResult[] results) {
+            this.inputProducts = inputProducts;
+            this.from = from;
+            this.to = to;
+            this.results = results;
+        }
+
+        /**
+         * The chunk was rolled back, everything it wrote is reported as FAILED.
+         */
+        void fail() {
+            events.clear();
+
+            for (int i = from; i < to; i++) {
+                BatchItemResult result = results[i];
+                if (result == null || result.getStatus() == Status.CREATED
+                        || result.getStatus() == Status.UPDATED || result.getStatus() == Status.DELETED) {
+                    ProductDTO inputProduct = inputProducts.get(i);
+                    Long id = inputProduct != null ? inputProduct.getId() : null;
+                    results[i] = new BatchItemResult(i, id, Status.FAILED, CHUNK_FAILED);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package no.gjensidige.product.service;
+
+import no.gjensidige.product.event.ProductChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * ProductCacheInvalidator
+ *
+ * Evicts a product from the product cache whenever it is saved or deleted, including the
+ * bulk endpoints. Events are published after the write is committed, so the next read
+ * loads the new state. Writes that bypass the services are only picked up when the entry
+ * expires.
+ *
+ */
+@Component
+public class ProductCacheInvalidator {
+
+    @Autowired
+    CacheManager cacheManager;
+
+    @EventListener
+    public void onProductChanged(ProductChangedEvent event) {
+        Cache cache = cacheManager.getCache(ProductService.PRODUCT_CACHE);
+
+        if (cache != null && event.getProduct().getId() != null) {
+            cache.evictIfPresent(event.getProduct().getId());
+        }
+    }
+}
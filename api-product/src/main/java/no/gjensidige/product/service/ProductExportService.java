@@ -0,0 +1,117 @@
+package no.gjensidige.product.service;
+
+import jakarta.persistence.EntityManager;
+import no.gjensidige.product.entity.Product;
+import no.gjensidige.product.model.ExportFormat;
+import no.gjensidige.product.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tools.jackson.core.StreamWriteFeature;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.SequenceWriter;
+import tools.jackson.databind.SerializationFeature;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * ProductExportService
+ *
+ * Writes the whole product table to an output stream while reading it through a
+ * forward-only cursor. Every product is detached from the persistence context as soon
+ * as it has been written, so memory use does not grow with the size of the table.
+ *
+ */
+@Service
+public class ProductExportService {
+
+    private static final String CSV_HEADER = "id,productName,category,imageLink,unitCost,unitPrice,numberSold";
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Transactional(readOnly = true)
+    public void exportProducts(ExportFormat format, OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+
+        try (Stream<Product> products = productRepository.streamAllByOrderByIdAsc()) {
+            if (format == ExportFormat.CSV) {
+                writeCsv(products.iterator(), writer);
+            } else {
+                writeNdjson(products.iterator(), writer);
+            }
+        }
+
+        writer.flush();
+    }
+
+    private void writeNdjson(Iterator<Product> products, Writer writer) throws IOException {
+        SequenceWriter sequenceWriter = objectMapper.writer()
+                .without(StreamWriteFeature.AUTO_CLOSE_TARGET)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("\n")
+                .writeValues(writer);
+
+        boolean any = false;
+        while (products.hasNext()) {
+            Product product = products.next();
+            sequenceWriter.write(product);
+            entityManager.detach(product);
+            any = true;
+        }
+        sequenceWriter.close();
+
+        if (any) {
+            writer.write('\n');
+        }
+    }
+
+    private void writeCsv(Iterator<Product> products, Writer writer) throws IOException {
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+
+        while (products.hasNext()) {
+            Product product = products.next();
+            writer.write(csv(product.getId()));
+            writer.write(',');
+            writer.write(csv(product.getProductName()));
+            writer.write(',');
+            writer.write(csv(product.getCategory()));
+            writer.write(',');
+            writer.write(csv(product.getImageLink()));
+            writer.write(',');
+            writer.write(csv(product.getUnitCost()));
+            writer.write(',');
+            writer.write(csv(product.getUnitPrice()));
+            writer.write(',');
+            writer.write(csv(product.getNumberSold()));
+            writer.write('\n');
+            entityManager.detach(product);
+        }
+    }
+
+    static String csv(Object value) {
+        if (value == null) {
+            return "";
+        }
+
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
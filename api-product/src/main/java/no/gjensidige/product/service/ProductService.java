@@ -1,14 +1,33 @@
 package no.gjensidige.product.service;
 
+import io.micrometer.core.annotation.Timed;
 import no.gjensidige.product.dto.ProductDTO;
 import no.gjensidige.product.exception.ProductNotFoundException;
+import no.gjensidige.product.exception.ProductVersionMismatchException;
 import no.gjensidige.product.entity.Product;
+import no.gjensidige.product.mapper.ProductMapper;
+import no.gjensidige.product.event.ProductChangedEvent;
+import no.gjensidige.product.metrics.QueryBudget;
+import no.gjensidige.product.model.ProductFilter;
+import no.gjensidige.product.model.ProductPage;
 import no.gjensidige.product.repository.ProductRepository;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * ProductService
@@ -19,64 +38,301 @@ import java.util.List;
  */
 
 @Service
+@Timed(value = "product.service", histogram = true)
 public class ProductService {
 
+    static final int MAX_PAGE_SIZE = 1000;
+
+    public static final String PRODUCT_CACHE = "products";
+
     @Autowired
     ProductRepository productRepository;
 
     @Autowired
-    ModelMapper modelMapper;
+    ProductMapper productMapper;
+
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Value("${product.search.probe-size:2000}")
+    int searchProbeSize = 2000;
 
     public List<Product> getAllProducts() {
 
         return productRepository.findAll();
     }
 
+    /**
+     * Summary of the whole table that changes with every write, the ETag of the product list.
+     */
+    @QueryBudget(1)
+    public ProductRepository.CatalogVersion getCatalogVersion() {
+
+        return productRepository.findCatalogVersion();
+    }
+
+    /**
+     * Returns up to size products with an id after the one encoded in token, ordered by id.
+     * One extra row is fetched to find out whether there is a next page.
+     */
+    public ProductPage getProductPage(String token, int size, String category) {
+
+        long afterId = token == null || token.isEmpty() ? 0L : PageToken.decode(token);
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        Limit limit = Limit.of(pageSize + 1);
+
+        List<Product> products = category == null
+                ? productRepository.findByIdGreaterThanOrderByIdAsc(afterId, limit)
+                : productRepository.findByCategoryAndIdGreaterThanOrderByIdAsc(category, afterId, limit);
+
+        return toPage(products, pageSize);
+    }
+
+    /**
+     * Keyset paginated search like getProductPage, restricted to the products matching every
+     * criterion set in the filter, see ProductRepository.search.
+     *
+     * H2 has no statistics on the distribution of values, so it can not tell a range that
+     * matches a handful of products from one that matches them all, and reading a range
+     * index pays off only for the former. A search led by a range, without a category to
+     * seek, therefore probes how many products match first. If only a few do the page is
+     * read through the range index, otherwise they are dense enough for the primary key
+     * walk to fill a page quickly.
+     */
+    @QueryBudget(2)
+    public ProductPage searchProducts(ProductFilter filter, String token, int size) {
+
+        long afterId = token == null || token.isEmpty() ? 0L : PageToken.decode(token);
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+
+        boolean byRange = filter.getCategory() == null && filter.hasIndexedRange() && hasFewMatches(filter, afterId);
+
+        List<Product> products = productRepository.findBy(ProductRepository.search(filter, afterId, byRange),
+                query -> query.sortBy(Sort.by("id")).limit(pageSize + 1).all());
+
+        return toPage(products, pageSize);
+    }
+
+    /**
+     * Reads up to product.search.probe-size + 1 matching ids through the range index, unordered
+     * so it stops as soon as there are more.
+     */
+    private boolean hasFewMatches(ProductFilter filter, long afterId) {
+        List<ProductRepository.ProductId> ids = productRepository.findBy(ProductRepository.search(filter, afterId, true),
+                query -> query.as(ProductRepository.ProductId.class).limit(searchProbeSize + 1).all());
+
+        return ids.size() <= searchProbeSize;
+    }
+
+    /**
+     * products holds up to one row more than the page, its presence means there is a next page.
+     */
+    private static ProductPage toPage(List<Product> products, int pageSize) {
+        if (products.size() <= pageSize) {
+            return new ProductPage(products, null);
+        }
+
+        List<Product> items = products.subList(0, pageSize);
+        return new ProductPage(items, PageToken.encode(items.get(pageSize - 1).getId()));
+    }
+
+    /**
+     * Read-through cached by id, concurrent misses for the same id share one load. Entries
+     * are evicted by ProductCacheInvalidator when the product is saved or deleted. Calls
+     * from within this class bypass the cache, so updates always start from the database.
+     */
+    @Cacheable(cacheNames = PRODUCT_CACHE, key = "#id", sync = true)
+    @QueryBudget(1)
     public Product getProduct(Long id) {
 
         return productRepository.findById(id).orElseThrow(() -> new ProductNotFoundException(id));
 
     }
 
+    @QueryBudget(2)
     public Product deleteProduct(Long id) {
 
-        Product product  = getProduct(id);
+        return deleteProduct(id, null);
+    }
+
+    /**
+     * Loads and deletes the product in one transaction, so the delete works on the managed
+     * entity instead of loading it a second time. With expectedVersions (If-Match) the
+     * product must be at one of them, also when the delete is written.
+     */
+    @QueryBudget(2)
+    public Product deleteProduct(Long id, Collection<Long> expectedVersions) {
 
-        productRepository.delete(product);
+        Product product = writeConditionally(id, expectedVersions, () -> transactionTemplate.execute(status -> {
+            Product existingProduct = getProduct(id);
+            checkVersion(existingProduct, expectedVersions);
+            productRepository.delete(existingProduct);
+            return existingProduct;
+        }));
+        eventPublisher.publishEvent(ProductChangedEvent.deleted(product));
 
         return product;
     }
 
 
+    @QueryBudget(2)
     public Product createProduct(ProductDTO inputProduct) {
 
         Product product = convertToEntity(inputProduct);
 
-        return productRepository.save(product);
+        Product savedProduct = productRepository.save(product);
+        eventPublisher.publishEvent(ProductChangedEvent.saved(savedProduct));
+
+        return savedProduct;
     }
 
+    @QueryBudget(2)
     public Product updateProduct(Long id, ProductDTO inputProduct) {
+
+        return updateProduct(id, inputProduct, null);
+    }
+
+    /**
+     * Loads and saves the product in one transaction. The entity stays managed, so save is
+     * a no-op merge and the changes are written by one update on commit instead of a
+     * second select followed by the update. The update is conditional on the version like
+     * deleteProduct.
+     */
+    @QueryBudget(2)
+    public Product updateProduct(Long id, ProductDTO inputProduct, Collection<Long> expectedVersions) {
         // Check if inputProduct is null
         if(inputProduct == null ){
             throw new IllegalArgumentException("ProductDTO cannot be null");
         }
 
-        // Map new fields from dto to the existing product
-        Product existingProduct = getProduct(id);
-        modelMapper.map(inputProduct, existingProduct);
-        return productRepository.save(existingProduct);
+        Product savedProduct = writeConditionally(id, expectedVersions, () -> transactionTemplate.execute(status -> {
+            // Map the fields set in the dto to the existing product
+            Product existingProduct = getProduct(id);
+            checkVersion(existingProduct, expectedVersions);
+            mergeIntoEntity(inputProduct, existingProduct);
+
+            return productRepository.save(existingProduct);
+        }));
+        eventPublisher.publishEvent(ProductChangedEvent.saved(savedProduct));
+
+        return savedProduct;
     }
 
+    /**
+     * Writes only the fields that are set in the dto, null fields keep their value. The
+     * update names just those columns and hands back the updated row through H2's
+     * final table, so the patch is one statement without loading the product first. The
+     * version is checked in the where clause, a patch that updates nothing is followed by
+     * one select to tell a missing product from a stale version.
+     */
+    @QueryBudget(2)
+    public Product patchProduct(Long id, ProductDTO changes, Collection<Long> expectedVersions) {
+        if (changes == null) {
+            throw new IllegalArgumentException("ProductDTO cannot be null");
+        }
+
+        StringBuilder assignments = new StringBuilder();
+        List<Object> args = new ArrayList<>();
+        assign(assignments, args, "product_name", changes.getProductName());
+        assign(assignments, args, "category", changes.getCategory());
+        assign(assignments, args, "image_link", changes.getImageLink());
+        assign(assignments, args, "unit_cost_minor", changes.getUnitCostMinor());
+        assign(assignments, args, "unit_price_minor", changes.getUnitPriceMinor());
+        assign(assignments, args, "number_sold", changes.getNumberSold());
+
+        if (args.isEmpty()) {
+            // Nothing to write, the patch only has to hold for the current product
+            Product product = productRepository.findById(id).orElseThrow(() -> new ProductNotFoundException(id));
+            checkVersion(product, expectedVersions);
+            return product;
+        }
+
+        List<Product> patched = List.of();
+        if (expectedVersions == null || !expectedVersions.isEmpty()) {
+            StringBuilder sql = new StringBuilder("select * from final table (update product set ")
+                    .append(assignments).append("version = version + 1 where id = ?");
+            args.add(id);
+            if (expectedVersions != null) {
+                sql.append(" and version in (").append("?, ".repeat(expectedVersions.size() - 1)).append("?)");
+                args.addAll(expectedVersions);
+            }
+            patched = jdbcTemplate.query(sql.append(")").toString(), ProductService::mapRow, args.toArray());
+        }
+
+        if (patched.isEmpty()) {
+            if (expectedVersions != null && productRepository.existsById(id)) {
+                throw new ProductVersionMismatchException(id);
+            }
+            throw new ProductNotFoundException(id);
+        }
+
+        Product product = patched.get(0);
+        eventPublisher.publishEvent(ProductChangedEvent.saved(product));
+
+        return product;
+    }
+
+    private static void assign(StringBuilder assignments, List<Object> args, String column, Object value) {
+        if (value != null) {
+            assignments.append(column).append(" = ?, ");
+            args.add(value);
+        }
+    }
+
+    private static Product mapRow(ResultSet rs, int rowNum) throws SQLException {
+        Product product = new Product();
+        product.setId(rs.getLong("id"));
+        product.setProductName(rs.getString("product_name"));
+        product.setCategory(rs.getString("category"));
+        product.setImageLink(rs.getString("image_link"));
+        product.setUnitCostMinor(rs.getLong("unit_cost_minor"));
+        product.setUnitPriceMinor(rs.getLong("unit_price_minor"));
+        product.setNumberSold(rs.getLong("number_sold"));
+        product.setVersion(rs.getLong("version"));
+        return product;
+    }
+
+    private static void checkVersion(Product product, Collection<Long> expectedVersions) {
+        if (expectedVersions != null && !expectedVersions.contains(product.getVersion())) {
+            throw new ProductVersionMismatchException(product.getId());
+        }
+    }
+
+    /**
+     * A concurrent write committed between the load and the write. For a conditional write
+     * its precondition no longer holds, an unconditional one fails with the exception.
+     */
+    private static Product writeConditionally(Long id, Collection<Long> expectedVersions, Supplier<Product> write) {
+        try {
+            return write.get();
+        } catch (OptimisticLockingFailureException e) {
+            if (expectedVersions != null) {
+                throw new ProductVersionMismatchException(id);
+            }
+            throw e;
+        }
+    }
 
     public ProductDTO convertToDTO(Product product) {
 
-        ProductDTO productDTO = modelMapper.map(product, ProductDTO.class);
+        ProductDTO productDTO = productMapper.toDTO(product);
 
         return productDTO;
     }
 
+    public void mergeIntoEntity(ProductDTO productDTO, Product product) {
+
+        productMapper.merge(productDTO, product);
+    }
+
     public Product convertToEntity(ProductDTO productDTO) {
-        Product product = modelMapper.map(productDTO, Product.class);
+        Product product = productMapper.toEntity(productDTO);
 
         return product;
 
@@ -0,0 +1,457 @@
+package no.gjensidige.product.service;
+
+import no.gjensidige.product.entity.Product;
+import no.gjensidige.product.event.ProductChangedEvent;
+import no.gjensidige.product.model.MarginBucket;
+import no.gjensidige.product.model.MinorUnits;
+import no.gjensidige.product.model.ProductAnalytics;
+import no.gjensidige.product.model.RankingMetric;
+import no.gjensidige.product.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * ProductSnapshot
+ *
+ * Columnar copy of the figures the reports need: id, unit price, unit cost (in minor
+ * units) and number sold, one long column each in direct ByteBuffers ordered by id.
+ * Scanning it reads 33 bytes per product and allocates nothing, and the columns live
+ * outside of the heap, so a snapshot of 10M products adds no work for the garbage
+ * collector. A fifth column holds the product version of every row, which scans do not
+ * read.
+ *
+ * The snapshot is loaded from the repository on first use, in keyset pages of figures
+ * without building entities, and afterwards kept up to date from ProductChangedEvents
+ * like ReportAggregator. Events are published after their commit, so those of concurrent
+ * writes to one product can arrive out of order; an event older than the version of its
+ * row is ignored. Deleted rows are flagged, keeping their version so a late event does not
+ * bring them back, and dropped the next time the columns grow.
+ *
+ * Direct memory is limited by -XX:MaxDirectMemorySize, which defaults to the maximum heap.
+ *
+ */
+@Component
+public class ProductSnapshot {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final int LOAD_PAGE_SIZE = 10_000;
+
+    private static final int ROW_BYTES = 8 + 8 + 8 + 8 + 8 + 1;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private LongBuffer ids;
+    private LongBuffer unitPrices;
+    private LongBuffer unitCosts;
+    private LongBuffer numbersSold;
+    private LongBuffer versions;
+    private ByteBuffer live;
+
+    private int capacity;
+    private int size;
+    private int liveCount;
+    private boolean initialized;
+
+    public ProductSnapshot() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * A loaded snapshot of the given products, which do not need to be ordered.
+     */
+    public static ProductSnapshot of(Iterable<Product> products) {
+        ProductSnapshot snapshot = new ProductSnapshot();
+        for (Product product : products) {
+            snapshot.put(product.getId(), product.getUnitPriceMinor(), product.getUnitCostMinor(), product.getNumberSold(),
+                    product.getVersion());
+        }
+        snapshot.initialized = true;
+        return snapshot;
+    }
+
+    // Runs before ReportCache sees the change, so a refresh triggered by it reads the new figures
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onProductChanged(ProductChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            // Until loaded the table itself is the source of truth
+            if (!initialized) {
+                return;
+            }
+
+            Product product = event.getProduct();
+            if (event.getType() == ProductChangedEvent.Type.DELETED) {
+                remove(product.getId(), product.getVersion());
+            } else {
+                put(product.getId(), product.getUnitPriceMinor(), product.getUnitCostMinor(), product.getNumberSold(),
+                        product.getVersion());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Totals and the ids of the four extreme products in one pass over the columns. Rows
+     * are visited in id order, so ties resolve to the lowest id.
+     */
+    public FiguresAccumulator summarize() {
+        ensureInitialized();
+
+        lock.readLock().lock();
+        try {
+            return summarizeLocked();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private FiguresAccumulator summarizeLocked() {
+        FiguresAccumulator summary = new FiguresAccumulator();
+        for (int i = 0; i < size; i++) {
+            if (live.get(i) != 0) {
+                summary.accept(ids.get(i), unitPrices.get(i), unitCosts.get(i), numbersSold.get(i));
+            }
+        }
+        return summary;
+    }
+
+    public ProductAnalytics analyze() {
+        FiguresAccumulator summary = summarize();
+
+        ProductAnalytics analytics = new ProductAnalytics();
+        analytics.setProductCount(summary.getCount());
+        analytics.setUnitsSold(summary.getUnitsSold());
+        analytics.setTotalTurnoverMinor(summary.getTotalTurnoverMinor());
+        analytics.setTotalCostMinor(summary.getTotalCostMinor());
+        analytics.setTotalMarginMinor(summary.getTotalMarginMinor());
+        if (summary.getUnitsSold() > 0) {
+            analytics.setAverageUnitPrice(average(summary.getTotalTurnoverMinor(), summary.getUnitsSold()));
+            analytics.setAverageUnitCost(average(summary.getTotalCostMinor(), summary.getUnitsSold()));
+        }
+        if (summary.getTotalTurnoverMinor() != 0) {
+            analytics.setMarginRatio((double) summary.getTotalMarginMinor() / summary.getTotalTurnoverMinor());
+        }
+        return analytics;
+    }
+
+    private static BigDecimal average(long totalMinor, long count) {
+        return MinorUnits.toDecimal(totalMinor).divide(BigDecimal.valueOf(count), MinorUnits.SCALE, RoundingMode.HALF_EVEN);
+    }
+
+    /**
+     * Number of products per margin range, buckets of equal width between the lowest and
+     * highest product margin. The highest margin falls into the last bucket.
+     */
+    public List<MarginBucket> marginHistogram(int buckets) {
+        if (buckets < 1) {
+            throw new IllegalArgumentException("Number of buckets must be positive");
+        }
+
+        ensureInitialized();
+
+        List<MarginBucket> histogram = new ArrayList<>(buckets);
+        FiguresAccumulator summary;
+        long[] counts = new long[buckets];
+        long from;
+        long width;
+
+        // Both passes under one hold, so no write can move a margin below the lowest one
+        lock.readLock().lock();
+        try {
+            summary = summarizeLocked();
+            if (summary.isEmpty()) {
+                return histogram;
+            }
+
+            from = summary.getLowestMargin();
+            width = Math.max(1, Math.subtractExact(summary.getHighestMargin(), from) / buckets);
+            for (int i = 0; i < size; i++) {
+                if (live.get(i) == 0) {
+                    continue;
+                }
+
+                long sold = numbersSold.get(i);
+                long margin = Math.subtractExact(Math.multiplyExact(sold, unitPrices.get(i)), Math.multiplyExact(sold, unitCosts.get(i)));
+                counts[(int) Math.min((margin - from) / width, buckets - 1)]++;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        for (int b = 0; b < buckets; b++) {
+            long to = b == buckets - 1 ? summary.getHighestMargin() : from + width * (b + 1);
+            histogram.add(new MarginBucket(MinorUnits.toDecimal(from + width * b), MinorUnits.toDecimal(to), counts[b]));
+        }
+        return histogram;
+    }
+
+    /**
+     * The ids of the k products with the highest and the k with the lowest value of the
+     * metric, best first, in one pass over the columns with two BoundedHeaps.
+     */
+    public Ranking rank(RankingMetric metric, int k) {
+        ensureInitialized();
+
+        BoundedHeap top = BoundedHeap.highest(k);
+        BoundedHeap bottom = BoundedHeap.lowest(k);
+
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < size; i++) {
+                if (live.get(i) == 0) {
+                    continue;
+                }
+
+                long sold = numbersSold.get(i);
+                long value;
+                if (metric == RankingMetric.UNITS_SOLD) {
+                    value = sold;
+                } else if (metric == RankingMetric.TURNOVER) {
+                    value = Math.multiplyExact(sold, unitPrices.get(i));
+                } else {
+                    value = Math.subtractExact(Math.multiplyExact(sold, unitPrices.get(i)), Math.multiplyExact(sold, unitCosts.get(i)));
+                }
+
+                long id = ids.get(i);
+                top.offer(value, id);
+                bottom.offer(value, id);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return new Ranking(top.drain(), bottom.drain());
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Bytes of direct memory held by the columns.
+     */
+    public long offHeapBytes() {
+        lock.readLock().lock();
+        try {
+            return (long) capacity * ROW_BYTES;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Drops all rows, the next scan will load them again from the repository.
+     */
+    public void reset() {
+        lock.writeLock().lock();
+        try {
+            allocate(INITIAL_CAPACITY);
+            size = 0;
+            liveCount = 0;
+            initialized = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ensureInitialized() {
+        lock.readLock().lock();
+        try {
+            if (initialized) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // Writes wait for the load, so no change committed meanwhile is lost
+        lock.writeLock().lock();
+        try {
+            if (initialized) {
+                return;
+            }
+
+            long afterId = Long.MIN_VALUE;
+            List<ProductRepository.ProductFigures> page;
+            do {
+                page = productRepository.findFiguresByIdGreaterThanOrderByIdAsc(afterId, Limit.of(LOAD_PAGE_SIZE));
+                for (ProductRepository.ProductFigures figures : page) {
+                    put(figures.id(), figures.unitPriceMinor(), figures.unitCostMinor(), figures.numberSold(), figures.version());
+                    afterId = figures.id();
+                }
+            } while (page.size() == LOAD_PAGE_SIZE);
+
+            initialized = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void put(long id, long unitPriceMinor, long unitCostMinor, long numberSold, long version) {
+        int index = indexOf(id);
+        if (index < 0) {
+            index = insertAt(-index - 1, id);
+        } else if (isOlder(index, version) || (live.get(index) == 0 && versions.get(index) >= version)) {
+            return;
+        }
+
+        unitPrices.put(index, unitPriceMinor);
+        unitCosts.put(index, unitCostMinor);
+        numbersSold.put(index, numberSold);
+        versions.put(index, version);
+        if (live.get(index) == 0) {
+            live.put(index, (byte) 1);
+            liveCount++;
+        }
+    }
+
+    private void remove(long id, long version) {
+        int index = indexOf(id);
+        if (index >= 0 && live.get(index) != 0 && !isOlder(index, version)) {
+            live.put(index, (byte) 0);
+            versions.put(index, version);
+            liveCount--;
+        }
+    }
+
+    /**
+     * Whether version is older than the one the row at index was last written with.
+     */
+    private boolean isOlder(int index, long version) {
+        return versions.get(index) > version;
+    }
+
+    /**
+     * Binary search over the id column, a negative result is -(insertion point) - 1.
+     */
+    private int indexOf(long id) {
+        // Ids come from a sequence, so almost every insert is an append
+        if (size == 0 || ids.get(size - 1) < id) {
+            return -size - 1;
+        }
+
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long middleId = ids.get(middle);
+            if (middleId < id) {
+                low = middle + 1;
+            } else if (middleId > id) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -low - 1;
+    }
+
+    private int insertAt(int index, long id) {
+        if (size == capacity) {
+            grow();
+            index = -indexOf(id) - 1;
+        }
+
+        for (int i = size; i > index; i--) {
+            ids.put(i, ids.get(i - 1));
+            unitPrices.put(i, unitPrices.get(i - 1));
+            unitCosts.put(i, unitCosts.get(i - 1));
+            numbersSold.put(i, numbersSold.get(i - 1));
+            versions.put(i, versions.get(i - 1));
+            live.put(i, live.get(i - 1));
+        }
+
+        ids.put(index, id);
+        live.put(index, (byte) 0);
+        size++;
+        return index;
+    }
+
+    /**
+     * Copies the live rows into columns of twice the capacity they need.
+     */
+    private void grow() {
+        LongBuffer oldIds = ids;
+        LongBuffer oldUnitPrices = unitPrices;
+        LongBuffer oldUnitCosts = unitCosts;
+        LongBuffer oldNumbersSold = numbersSold;
+        LongBuffer oldVersions = versions;
+        ByteBuffer oldLive = live;
+        int oldSize = size;
+
+        allocate(Math.max(INITIAL_CAPACITY, liveCount * 2));
+        size = 0;
+        for (int i = 0; i < oldSize; i++) {
+            if (oldLive.get(i) != 0) {
+                ids.put(size, oldIds.get(i));
+                unitPrices.put(size, oldUnitPrices.get(i));
+                unitCosts.put(size, oldUnitCosts.get(i));
+                numbersSold.put(size, oldNumbersSold.get(i));
+                versions.put(size, oldVersions.get(i));
+                live.put(size, (byte) 1);
+                size++;
+            }
+        }
+    }
+
+    private void allocate(int newCapacity) {
+        capacity = newCapacity;
+        ids = column(newCapacity).asLongBuffer();
+        unitPrices = column(newCapacity).asLongBuffer();
+        unitCosts = column(newCapacity).asLongBuffer();
+        numbersSold = column(newCapacity).asLongBuffer();
+        versions = column(newCapacity).asLongBuffer();
+        live = ByteBuffer.allocateDirect(newCapacity);
+    }
+
+    private static ByteBuffer column(int capacity) {
+        return ByteBuffer.allocateDirect(capacity * 8).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Result of rank, the product ids of the top and the bottom of a ranking.
+     */
+    public static final class Ranking {
+
+        final long[] topIds;
+        final long[] bottomIds;
+
+        Ranking(long[] topIds, long[] bottomIds) {
+            this.topIds = topIds;
+            this.bottomIds = bottomIds;
+        }
+
+        public long[] getTopIds() {
+            return topIds;
+        }
+
+        public long[] getBottomIds() {
+            return bottomIds;
+        }
+    }
+}
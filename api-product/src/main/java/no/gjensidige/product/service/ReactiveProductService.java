@@ -0,0 +1,78 @@
+package no.gjensidige.product.service;
+
+import no.gjensidige.product.entity.Product;
+import no.gjensidige.product.model.FinancialReport;
+import no.gjensidige.product.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import jakarta.annotation.PreDestroy;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executors;
+
+/**
+ * ReactiveProductService
+ *
+ * Streams products as a Flux backed by keyset pages of product.reactive.page-size rows. A
+ * page is only fetched when the subscriber has asked for more products, so a slow reader
+ * holds neither a database connection nor a thread between pages.
+ *
+ * Spring MVC writes every element with a blocking write on the thread that emitted it. The
+ * pages are therefore fetched and emitted on virtual threads, so a client that stops reading
+ * parks a virtual thread instead of a request or scheduler thread.
+ *
+ */
+@Service
+public class ReactiveProductService {
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Value("${product.reactive.page-size:500}")
+    int pageSize = 500;
+
+    private final Scheduler scheduler = Schedulers.fromExecutorService(Executors.newVirtualThreadPerTaskExecutor(), "reactive-products");
+
+    public Flux<Product> streamProducts(String category) {
+        return fetchPage(category, 0L)
+                .expand(page -> page.size() < pageSize
+                        ? Mono.empty()
+                        : fetchPage(category, page.get(page.size() - 1).getId()))
+                // Request one page at a time from upstream
+                .flatMapIterable(page -> page, 1);
+    }
+
+    /**
+     * Reduces the product stream with the same single-pass accumulator as the blocking report.
+     */
+    public Mono<FinancialReport> generateFinancialReport() {
+        return streamProducts(null)
+                .reduceWith(ReportAccumulator::new, (accumulator, product) -> {
+                    accumulator.accept(product);
+                    return accumulator;
+                })
+                .filter(accumulator -> !accumulator.isEmpty())
+                .switchIfEmpty(Mono.error(() -> new NoSuchElementException("Product list is empty")))
+                .map(ReportAccumulator::toReport);
+    }
+
+    private Mono<List<Product>> fetchPage(String category, long afterId) {
+        return Mono.fromCallable(() -> category == null
+                        ? productRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(pageSize))
+                        : productRepository.findByCategoryAndIdGreaterThanOrderByIdAsc(category, afterId, Limit.of(pageSize)))
+                .subscribeOn(scheduler);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.dispose();
+    }
+}
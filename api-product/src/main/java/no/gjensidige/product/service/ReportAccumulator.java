@@ -0,0 +1,86 @@
+package no.gjensidige.product.service;
+
+import no.gjensidige.product.entity.Product;
+import no.gjensidige.product.model.FinancialReport;
+
+/**
+ * ReportAccumulator
+ *
+ * Computes turnover, cost and the four extreme products of a financial report in a
+ * single pass, with the FiguresAccumulator reduction. Per product the figures are read
+ * once as primitives, and the product is kept for every extreme it becomes the
+ * candidate for.
+ *
+ * Accumulators over consecutive slices of the product list can be merged, the totals do
+ * not depend on how the list was sliced.
+ *
+ */
+public class ReportAccumulator {
+
+    private final FiguresAccumulator figures = new FiguresAccumulator();
+
+    private Product highestMarginProduct;
+    private Product lowestMarginProduct;
+    private Product mostSoldProduct;
+    private Product leastSoldProduct;
+
+    public static ReportAccumulator of(Iterable<Product> products) {
+        ReportAccumulator accumulator = new ReportAccumulator();
+        for (Product product : products) {
+            accumulator.accept(product);
+        }
+        return accumulator;
+    }
+
+    public void accept(Product product) {
+        // The extremes are tracked by reference, so products without an id are fine
+        long id = product.getId() != null ? product.getId() : 0;
+        take(figures.accept(id, product.getUnitPriceMinor(), product.getUnitCostMinor(), product.getNumberSold()),
+                product, product, product, product);
+    }
+
+    /**
+     * Merges an accumulator over products that come after the ones seen by this one,
+     * so on ties the candidates of this accumulator are kept.
+     */
+    public ReportAccumulator merge(ReportAccumulator other) {
+        take(figures.merge(other.figures),
+                other.highestMarginProduct, other.lowestMarginProduct, other.mostSoldProduct, other.leastSoldProduct);
+        return this;
+    }
+
+    private void take(int taken, Product highestMargin, Product lowestMargin, Product mostSold, Product leastSold) {
+        if ((taken & FiguresAccumulator.HIGHEST_MARGIN) != 0) {
+            highestMarginProduct = highestMargin;
+        }
+        if ((taken & FiguresAccumulator.LOWEST_MARGIN) != 0) {
+            lowestMarginProduct = lowestMargin;
+        }
+        if ((taken & FiguresAccumulator.MOST_SOLD) != 0) {
+            mostSoldProduct = mostSold;
+        }
+        if ((taken & FiguresAccumulator.LEAST_SOLD) != 0) {
+            leastSoldProduct = leastSold;
+        }
+    }
+
+    public boolean isEmpty() {
+        return figures.isEmpty();
+    }
+
+    public long getCount() {
+        return figures.getCount();
+    }
+
+    public FinancialReport toReport() {
+        FinancialReport report = new FinancialReport();
+        report.setTotalTurnoverMinor(figures.getTotalTurnoverMinor());
+        report.setTotalCostMinor(figures.getTotalCostMinor());
+        report.setTotalMarginMinor(figures.getTotalMarginMinor());
+        report.setHighestMarginProduct(highestMarginProduct);
+        report.setLowestMarginProduct(lowestMarginProduct);
+        report.setMostSoldProduct(mostSoldProduct);
+        report.setLeastSoldProduct(leastSoldProduct);
+        return report;
+    }
+}
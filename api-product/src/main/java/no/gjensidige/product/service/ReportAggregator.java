@@ -0,0 +1,194 @@
+package no.gjensidige.product.service;
+
+import no.gjensidige.product.entity.Product;
+import no.gjensidige.product.event.ProductChangedEvent;
+import no.gjensidige.product.model.FinancialReport;
+import no.gjensidige.product.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
+
+/**
+ * ReportAggregator
+ *
+ * Keeps running turnover and cost sums (exact, in minor units) together with ordered indexes on margin and
+ * number sold, so a financial report can be produced without loading the product table.
+ *
+ * The aggregates are bootstrapped from the repository on first use and are afterwards
+ * kept up to date from the ProductChangedEvents published by ProductService. Writes that
+ * bypass the service (or happen on another instance) are not seen.
+ *
+ * Events are published after their commit, so those of concurrent writes to one product can
+ * arrive out of order. An event older than the product version already applied is ignored.
+ *
+ */
+@Component
+public class ReportAggregator {
+
+    private static final Comparator<Entry> MARGIN_ORDER =
+            Comparator.comparingLong((Entry e) -> e.margin).thenComparingLong(e -> e.id);
+
+    private static final Comparator<Entry> SOLD_ORDER =
+            Comparator.comparingLong((Entry e) -> e.numberSold).thenComparingLong(e -> e.id);
+
+    @Autowired
+    ProductRepository productRepository;
+
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final NavigableSet<Entry> byMargin = new TreeSet<>(MARGIN_ORDER);
+    private final NavigableSet<Entry> byNumberSold = new TreeSet<>(SOLD_ORDER);
+
+    private long totalTurnover;
+    private long totalCost;
+    private boolean initialized;
+
+    // Runs before ReportCache sees the change, so a refresh triggered by it reads the new aggregates
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public synchronized void onProductChanged(ProductChangedEvent event) {
+        // Until bootstrapped the table itself is the source of truth
+        if (!initialized) {
+            return;
+        }
+
+        Product product = event.getProduct();
+        Entry current = entries.get(product.getId());
+        if (current != null && current.product.getVersion() > product.getVersion()) {
+            return;
+        }
+
+        if (event.getType() == ProductChangedEvent.Type.DELETED) {
+            remove(product.getId());
+        } else {
+            put(product);
+        }
+    }
+
+    public synchronized FinancialReport createReport() {
+        ensureInitialized();
+
+        if (entries.isEmpty()) {
+            throw new NoSuchElementException("Product list is empty");
+        }
+
+        FinancialReport report = new FinancialReport();
+        report.setTotalTurnoverMinor(totalTurnover);
+        report.setTotalCostMinor(totalCost);
+        report.setTotalMarginMinor(Math.subtractExact(totalTurnover, totalCost));
+        report.setHighestMarginProduct(copyOf(firstOfHighest(byMargin).product));
+        report.setLowestMarginProduct(copyOf(byMargin.first().product));
+        report.setMostSoldProduct(copyOf(firstOfHighest(byNumberSold).product));
+        report.setLeastSoldProduct(copyOf(byNumberSold.first().product));
+
+        return report;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Drops all aggregates, the next report will bootstrap them again from the repository.
+     */
+    public synchronized void reset() {
+        entries.clear();
+        byMargin.clear();
+        byNumberSold.clear();
+        totalTurnover = 0;
+        totalCost = 0;
+        initialized = false;
+    }
+
+    private void ensureInitialized() {
+        if (initialized) {
+            return;
+        }
+
+        for (Product product : productRepository.findAll()) {
+            put(product);
+        }
+        initialized = true;
+    }
+
+    private void put(Product product) {
+        remove(product.getId());
+
+        Entry entry = new Entry(copyOf(product));
+        entries.put(entry.id, entry);
+        byMargin.add(entry);
+        byNumberSold.add(entry);
+        totalTurnover = Math.addExact(totalTurnover, entry.turnover);
+        totalCost = Math.addExact(totalCost, entry.cost);
+    }
+
+    private void remove(Long id) {
+        Entry entry = entries.remove(id);
+        if (entry == null) {
+            return;
+        }
+
+        byMargin.remove(entry);
+        byNumberSold.remove(entry);
+        totalTurnover = Math.subtractExact(totalTurnover, entry.turnover);
+        totalCost = Math.subtractExact(totalCost, entry.cost);
+    }
+
+    /**
+     * Collections.max keeps the first of several equal candidates, so among the entries
+     * sharing the highest key we pick the one with the lowest id.
+     */
+    private static Entry firstOfHighest(NavigableSet<Entry> index) {
+        Entry highest = index.last();
+        return index.ceiling(new Entry(Long.MIN_VALUE, highest.margin, highest.numberSold));
+    }
+
+    private static Product copyOf(Product product) {
+        Product copy = new Product();
+        copy.setId(product.getId());
+        copy.setProductName(product.getProductName());
+        copy.setCategory(product.getCategory());
+        copy.setImageLink(product.getImageLink());
+        copy.setUnitCostMinor(product.getUnitCostMinor());
+        copy.setUnitPriceMinor(product.getUnitPriceMinor());
+        copy.setNumberSold(product.getNumberSold());
+        copy.setVersion(product.getVersion());
+        return copy;
+    }
+
+    private static final class Entry {
+
+        final long id;
+        final long turnover;
+        final long cost;
+        final long margin;
+        final long numberSold;
+        final Product product;
+
+        Entry(Product product) {
+            this.id = product.getId();
+            this.numberSold = product.getNumberSold();
+            this.turnover = Math.multiplyExact(numberSold, product.getUnitPriceMinor());
+            this.cost = Math.multiplyExact(numberSold, product.getUnitCostMinor());
+            this.margin = Math.subtractExact(turnover, cost);
+            this.product = product;
+        }
+
+        Entry(long id, long margin, long numberSold) {
+            this.id = id;
+            this.turnover = 0;
+            this.cost = 0;
+            this.margin = margin;
+            this.numberSold = numberSold;
+            this.product = null;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package no.gjensidige.product.service;
+
+import no.gjensidige.product.event.ProductChangedEvent;
+import no.gjensidige.product.model.FinancialReport;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * ReportCache
+ *
+ * Holds the last computed financial report together with the data version it was computed
+ * at. Every ProductChangedEvent bumps the version. While the cached report is current it is
+ * returned as is; once it is outdated readers keep getting it while a single background
+ * refresh computes the next one (stale-while-revalidate).
+ *
+ * Only the very first report, or the first one after a failed refresh, is computed on the
+ * caller's thread. Writes that bypass the services are not seen.
+ *
+ */
+@Component
+public class ReportCache {
+
+    private final AtomicLong dataVersion = new AtomicLong();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    private volatile Snapshot snapshot;
+
+    Executor executor;
+
+    public FinancialReport get(Supplier<FinancialReport> generator) {
+        Snapshot current = snapshot;
+
+        if (current == null) {
+            return load(generator);
+        }
+
+        if (current.version != dataVersion.get()) {
+            refreshAsync(generator);
+        }
+
+        return current.report;
+    }
+
+    // Runs after the listeners that maintain the data the report is computed from
+    @EventListener
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onProductChanged(ProductChangedEvent event) {
+        dataVersion.incrementAndGet();
+    }
+
+    public long getDataVersion() {
+        return dataVersion.get();
+    }
+
+    private synchronized FinancialReport load(Supplier<FinancialReport> generator) {
+        // Another caller may have loaded it while this one waited
+        if (snapshot != null) {
+            return snapshot.report;
+        }
+
+        long version = dataVersion.get();
+        FinancialReport report = generator.get();
+        snapshot = new Snapshot(report, version);
+
+        return report;
+    }
+
+    private void refreshAsync(Supplier<FinancialReport> generator) {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            executor().execute(() -> {
+                try {
+                    long version = dataVersion.get();
+                    snapshot = new Snapshot(generator.get(), version);
+                } catch (RuntimeException e) {
+                    // Let the next reader compute it and see the error
+                    snapshot = null;
+                } finally {
+                    refreshing.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            refreshing.set(false);
+            throw e;
+        }
+    }
+
+    private synchronized Executor executor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "report-cache-refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (executor instanceof ExecutorService) {
+            ((ExecutorService) executor).shutdown();
+        }
+    }
+
+    private static final class Snapshot {
+
+        final FinancialReport report;
+        final long version;
+
+        Snapshot(FinancialReport report, long version) {
+            this.report = report;
+            this.version = version;
+        }
+    }
+}
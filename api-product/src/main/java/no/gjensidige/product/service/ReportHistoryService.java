@@ -0,0 +1,169 @@
+package no.gjensidige.product.service;
+
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import no.gjensidige.product.entity.ReportSnapshot;
+import no.gjensidige.product.exception.ReportSnapshotNotFoundException;
+import no.gjensidige.product.model.FinancialReport;
+import no.gjensidige.product.model.ReportDelta;
+import no.gjensidige.product.repository.ReportSnapshotRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ReportHistoryService
+ *
+ * Takes the financial report every report.history.interval on a background thread and
+ * stores it as a ReportSnapshot, unless its figures are the same as those of the last
+ * stored one, so serving reports never writes to the database. Snapshots older than
+ * report.history.retention are deleted at the same time.
+ *
+ * History questions are answered from the stored rows only. A report as of a point in
+ * time is the last snapshot taken at or before it, so deltas and time series cost index
+ * lookups whatever the size of the catalog.
+ *
+ */
+@Service
+@Timed(value = "report.history.service", histogram = true)
+public class ReportHistoryService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReportHistoryService.class);
+
+    private static final Duration WEEK = Duration.ofDays(7);
+
+    @Autowired
+    ReportSnapshotRepository reportSnapshotRepository;
+
+    @Autowired
+    ReportService reportService;
+
+    @Value("${report.history.interval:1h}")
+    Duration interval = Duration.ofHours(1);
+
+    @Value("${report.history.retention:400d}")
+    Duration retention = Duration.ofDays(400);
+
+    private ReportSnapshot lastRecorded;
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "report-history");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::takeSnapshot, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        scheduler.shutdown();
+        scheduler.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Records the current report and deletes the snapshots that fell out of the retention.
+     * Nothing is recorded while the catalog is empty, a failure is logged.
+     */
+    public void takeSnapshot() {
+        try {
+            deleteExpired();
+        } catch (RuntimeException e) {
+            log.warn("Deleting old report snapshots failed", e);
+        }
+
+        try {
+            record(reportService.generateFinancialReport());
+        } catch (NoSuchElementException e) {
+            log.debug("No products, no report snapshot taken");
+        } catch (RuntimeException e) {
+            log.warn("Taking the report snapshot failed", e);
+        }
+    }
+
+    private synchronized void deleteExpired() {
+        int deleted = reportSnapshotRepository.deleteCreatedBefore(Timestamp.from(Instant.now().minus(retention)));
+        if (deleted > 0) {
+            // The last stored snapshot may be gone, record stores the report again if so
+            lastRecorded = null;
+            log.info("Deleted {} report snapshots older than {}", deleted, retention);
+        }
+    }
+
+    /**
+     * Stores the report if it differs from the last stored one. A failure is logged.
+     */
+    public synchronized void record(FinancialReport report) {
+        try {
+            ReportSnapshot snapshot = ReportSnapshot.of(report);
+
+            if (lastRecorded == null) {
+                lastRecorded = reportSnapshotRepository
+                        .findFirstByCreatedTimeLessThanEqualOrderByCreatedTimeDescIdDesc(Timestamp.from(Instant.now()))
+                        .orElse(null);
+            }
+            if (lastRecorded != null && lastRecorded.hasSameFigures(snapshot)) {
+                return;
+            }
+
+            lastRecorded = reportSnapshotRepository.save(snapshot);
+        } catch (RuntimeException e) {
+            log.warn("Storing the report snapshot failed", e);
+        }
+    }
+
+    public ReportSnapshot getSnapshotAt(Instant time) {
+        return findSnapshotAt(time).orElseThrow(() -> new ReportSnapshotNotFoundException(time));
+    }
+
+    public List<ReportSnapshot> getSnapshots(Instant from, Instant to, int limit) {
+        return reportSnapshotRepository.findByCreatedTimeBetweenOrderByCreatedTimeAscIdAsc(
+                Timestamp.from(from), Timestamp.from(to), Limit.of(limit));
+    }
+
+    public ReportDelta getDelta(Instant from, Instant to) {
+        return new ReportDelta(getSnapshotAt(from), getSnapshotAt(to));
+    }
+
+    /**
+     * Week-over-week deltas for the weeks ending at to, oldest first. Weeks that start
+     * before the first snapshot are left out.
+     */
+    public List<ReportDelta> getWeeklyDeltas(Instant to, int weeks) {
+        List<ReportDelta> deltas = new ArrayList<>(weeks);
+
+        ReportSnapshot end = getSnapshotAt(to);
+        for (int week = 1; week <= weeks; week++) {
+            Optional<ReportSnapshot> start = findSnapshotAt(to.minus(WEEK.multipliedBy(week)));
+            if (start.isEmpty()) {
+                break;
+            }
+            deltas.add(0, new ReportDelta(start.get(), end));
+            end = start.get();
+        }
+        return deltas;
+    }
+
+    private Optional<ReportSnapshot> findSnapshotAt(Instant time) {
+        return reportSnapshotRepository.findFirstByCreatedTimeLessThanEqualOrderByCreatedTimeDescIdDesc(Timestamp.from(time));
+    }
+}
@@ -1,65 +1,280 @@
 package no.gjensidige.product.service;
 
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import no.gjensidige.product.entity.Product;
+import no.gjensidige.product.metrics.QueryBudget;
+import no.gjensidige.product.model.CategoryReport;
 import no.gjensidige.product.model.FinancialReport;
+import no.gjensidige.product.model.ProductRanking;
+import no.gjensidige.product.model.RankingMetric;
+import no.gjensidige.product.model.ReportMode;
 import no.gjensidige.product.repository.ProductRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
+/**
+ * ReportService
+ *
+ * Generates the financial report in the configured report.mode. Every generation is broken
+ * down in the report.generation timer by mode and phase: fetch (loading products or
+ * aggregates), compute (reducing them), or fetch_compute when a mode interleaves the two.
+ * The number of products covered is recorded in the report.products summary.
+ *
+ */
 @Service
+@Timed(value = "report.service", histogram = true)
 public class ReportService {
 
     @Autowired
     ProductRepository productRepository;
 
+    @Autowired
+    ReportAggregator reportAggregator;
+
+    @Autowired
+    ParallelReportGenerator parallelReportGenerator;
+
+    @Autowired
+    ProductSnapshot productSnapshot;
+
+    @Autowired
+    ReportCache reportCache;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Value("${report.mode:SCAN}")
+    ReportMode reportMode = ReportMode.SCAN;
+
+    @Value("${report.cache.enabled:false}")
+    boolean cacheEnabled;
+
     public FinancialReport generateFinancialReport(){
 
-        List<Product> productList = productRepository.findAll();
+        if (cacheEnabled) {
+            return reportCache.get(this::computeFinancialReport);
+        }
+
+        return computeFinancialReport();
+    }
+
+    /**
+     * The financial report per category, ordered by category, in one pass over the figures
+     * of all products and one query for the extreme products of every category. The
+     * figures arrive grouped by category, so only one category is reduced at a time.
+     */
+    @Transactional(readOnly = true)
+    @QueryBudget(2)
+    public List<CategoryReport> generateCategoryReports(){
+
+        List<CategoryAccumulator> accumulators = new ArrayList<>();
+        CategoryAccumulator current = null;
+
+        try (Stream<ProductRepository.CategoryFigures> figures = productRepository.streamCategoryFiguresByOrderByCategoryAscIdAsc()) {
+            for (ProductRepository.CategoryFigures product : (Iterable<ProductRepository.CategoryFigures>) figures::iterator) {
+                if (current == null || !Objects.equals(current.getCategory(), product.category())) {
+                    current = new CategoryAccumulator(product.category());
+                    accumulators.add(current);
+                }
+                current.accept(product.id(), product.unitPriceMinor(), product.unitCostMinor(), product.numberSold());
+            }
+        }
+
+        Set<Long> extremeIds = new HashSet<>();
+        for (CategoryAccumulator accumulator : accumulators) {
+            for (long id : accumulator.getExtremeIds()) {
+                extremeIds.add(id);
+            }
+        }
+
+        Map<Long, Product> products = new HashMap<>();
+        if (!extremeIds.isEmpty()) {
+            productRepository.findAllById(extremeIds).forEach(product -> products.put(product.getId(), product));
+        }
+
+        List<CategoryReport> reports = new ArrayList<>(accumulators.size());
+        for (CategoryAccumulator accumulator : accumulators) {
+            reports.add(accumulator.toReport(products));
+        }
+        return reports;
+    }
+
+    /**
+     * The k products with the highest and lowest value of the metric, ranked on the
+     * columns of ProductSnapshot. Only the ranked products are loaded, with one query.
+     */
+    public ProductRanking generateRanking(RankingMetric metric, int k){
+
+        ProductSnapshot.Ranking ranking = productSnapshot.rank(metric, k);
+
+        Set<Long> rankedIds = new HashSet<>();
+        Arrays.stream(ranking.getTopIds()).forEach(rankedIds::add);
+        Arrays.stream(ranking.getBottomIds()).forEach(rankedIds::add);
+
+        Map<Long, Product> products = new HashMap<>();
+        if (!rankedIds.isEmpty()) {
+            productRepository.findAllById(rankedIds).forEach(product -> products.put(product.getId(), product));
+        }
+
+        ProductRanking productRanking = new ProductRanking();
+        productRanking.setMetric(metric);
+        productRanking.setTop(resolve(ranking.getTopIds(), products));
+        productRanking.setBottom(resolve(ranking.getBottomIds(), products));
+        return productRanking;
+    }
+
+    // Products deleted since the snapshot was read are left out
+    private static List<Product> resolve(long[] ids, Map<Long, Product> products) {
+        List<Product> resolved = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            Product product = products.get(id);
+            if (product != null) {
+                resolved.add(product);
+            }
+        }
+        return resolved;
+    }
+
+    private FinancialReport computeFinancialReport(){
+
+        if (reportMode == ReportMode.INCREMENTAL) {
+            FinancialReport report = record("compute", reportAggregator::createReport);
+            recordProductCount(reportAggregator.size());
+            return report;
+        }
+
+        if (reportMode == ReportMode.DATABASE) {
+            return generateFinancialReportInDatabase();
+        }
+
+        if (reportMode == ReportMode.COLUMNAR) {
+            return generateFinancialReportFromSnapshot();
+        }
+
+        ReportAccumulator accumulator;
+        if (reportMode == ReportMode.PARALLEL) {
+            accumulator = record("fetch_compute", parallelReportGenerator::accumulate);
+        } else {
+            List<Product> products = record("fetch", productRepository::findAll);
+            accumulator = record("compute", () -> ReportAccumulator.of(products));
+        }
+        recordProductCount(accumulator.getCount());
 
-        if (productList.isEmpty()){
+        if (accumulator.isEmpty()){
             throw new NoSuchElementException("Product list is empty");
         }
 
-        Double totalTurnover = productList.stream().mapToDouble(this::getProductTurnover).sum();
+        return accumulator.toReport();
+    }
 
-        Double totalCost = productList.stream().mapToDouble(this::getProductCost).sum();
+    /**
+     * Only the totals row and the four extreme products are transferred from the database.
+     * Products with missing figures are left out of the aggregates.
+     */
+    private FinancialReport generateFinancialReportInDatabase(){
 
-        Double totalMargin = totalTurnover - totalCost;
+        ProductRepository.ReportTotals totals = record("fetch", productRepository::findReportTotals);
+        recordProductCount(totals != null && totals.getProductCount() != null ? totals.getProductCount() : 0);
 
-        Product highestMarginProduct = Collections.max(productList, Comparator.comparing(this::getProductMargin));
+        if (totals == null || totals.getProductCount() == null || totals.getProductCount() == 0){
+            throw new NoSuchElementException("Product list is empty");
+        }
+
+        long totalTurnover = totals.getTotalTurnover() != null ? totals.getTotalTurnover() : 0;
+        long totalCost = totals.getTotalCost() != null ? totals.getTotalCost() : 0;
+
+        FinancialReport report = new FinancialReport();
+        report.setTotalTurnoverMinor(totalTurnover);
+        report.setTotalCostMinor(totalCost);
+        report.setTotalMarginMinor(Math.subtractExact(totalTurnover, totalCost));
+        record("fetch", () -> {
+            report.setHighestMarginProduct(productRepository.findHighestMarginProduct().orElse(null));
+            report.setLowestMarginProduct(productRepository.findLowestMarginProduct().orElse(null));
+            report.setMostSoldProduct(productRepository.findMostSoldProduct().orElse(null));
+            report.setLeastSoldProduct(productRepository.findLeastSoldProduct().orElse(null));
+            return report;
+        });
 
-        Product lowestMarginProduct = Collections.min(productList, Comparator.comparing(this::getProductMargin));
+        return report;
+    }
 
-        Product leastSoldProduct = Collections.min(productList, Comparator.comparing(Product::getNumberSold));
+    /**
+     * Only the four extreme products are loaded, with one query.
+     */
+    private FinancialReport generateFinancialReportFromSnapshot(){
 
-        Product mostSoldProduct = Collections.max(productList, Comparator.comparing(Product::getNumberSold));
+        FiguresAccumulator summary = record("compute", productSnapshot::summarize);
+        recordProductCount(summary.getCount());
+
+        if (summary.getCount() == 0){
+            throw new NoSuchElementException("Product list is empty");
+        }
+
+        Map<Long, Product> products = record("fetch", () -> {
+            Map<Long, Product> byId = new HashMap<>();
+            productRepository.findAllById(Arrays.asList(summary.getHighestMarginId(), summary.getLowestMarginId(),
+                    summary.getMostSoldId(), summary.getLeastSoldId())).forEach(product -> byId.put(product.getId(), product));
+            return byId;
+        });
 
         FinancialReport report = new FinancialReport();
-        report.setLowestMarginProduct(lowestMarginProduct);
-        report.setMostSoldProduct(mostSoldProduct);
-        report.setTotalTurnover(totalTurnover);
-        report.setLeastSoldProduct(leastSoldProduct);
-        report.setTotalCost(totalCost);
-        report.setTotalMargin(totalMargin);
-        report.setHighestMarginProduct(highestMarginProduct);
+        report.setTotalTurnoverMinor(summary.getTotalTurnoverMinor());
+        report.setTotalCostMinor(summary.getTotalCostMinor());
+        report.setTotalMarginMinor(summary.getTotalMarginMinor());
+        report.setHighestMarginProduct(products.get(summary.getHighestMarginId()));
+        report.setLowestMarginProduct(products.get(summary.getLowestMarginId()));
+        report.setMostSoldProduct(products.get(summary.getMostSoldId()));
+        report.setLeastSoldProduct(products.get(summary.getLeastSoldId()));
 
         return report;
     }
 
-    public Double getProductTurnover(Product product){
-        return product.getNumberSold().doubleValue() * product.getUnitPrice();
+    private <T> T record(String phase, Supplier<T> step) {
+        return Timer.builder("report.generation")
+                .description("Time spent in each phase of generating a financial report")
+                .tag("mode", reportMode.name())
+                .tag("phase", phase)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(step);
+    }
+
+    private void recordProductCount(long count) {
+        DistributionSummary.builder("report.products")
+                .description("Number of products a generated financial report covers")
+                .tag("mode", reportMode.name())
+                .register(meterRegistry)
+                .record(count);
+    }
+
+    // Amounts in minor units
+
+    public long getProductTurnover(Product product){
+        return Math.multiplyExact(product.getNumberSold(), product.getUnitPriceMinor());
     }
 
-    public Double getProductCost(Product product){
-        return product.getNumberSold().doubleValue() * product.getUnitCost();
+    public long getProductCost(Product product){
+        return Math.multiplyExact(product.getNumberSold(), product.getUnitCostMinor());
     }
 
-    public Double getProductMargin(Product product){
-        return getProductTurnover(product) - getProductCost(product);
+    public long getProductMargin(Product product){
+        return Math.subtractExact(getProductTurnover(product), getProductCost(product));
     }
 }
@@ -0,0 +1,308 @@
+package no.gjensidige.product.service;
+
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import no.gjensidige.product.dto.SaleDTO;
+import no.gjensidige.product.event.ProductChangedEvent;
+import no.gjensidige.product.exception.InvalidSaleException;
+import no.gjensidige.product.model.MinorUnits;
+import no.gjensidige.product.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * SalesService
+ *
+ * Ingests sales events without a transaction per sale. Quantities are added to an in-memory
+ * buffer that coalesces them per product, and flushed every product.sales.flush-interval,
+ * or as soon as product.sales.flush-size products are pending, as batched
+ * update product set number_sold = number_sold + ? statements, which also increment the
+ * product version so ETags change. Every flushed product is
+ * announced with a ProductChangedEvent, like any other write.
+ *
+ * Loss semantics: an accepted sale is only in memory until the next flush.
+ * - A crash or kill loses the sales accepted since the last flush, at most one flush
+ *   interval or flush-size products worth. A graceful shutdown flushes first.
+ * - Sales for products that do not exist, or that would push number_sold over its bound,
+ *   are dropped when flushed and counted in sales.dropped. Sales that would push the
+ *   buffered quantity of a product over that bound are dropped when buffered.
+ * - If the database can not be reached the sales stay buffered and are retried at the
+ *   next flush. The buffer holds one entry per product, so it does not grow with the
+ *   number of sales.
+ * Readers see a sale once its flush has committed.
+ *
+ */
+@Service
+@Timed(value = "sales.service", histogram = true)
+public class SalesService {
+
+    private static final Logger log = LoggerFactory.getLogger(SalesService.class);
+
+    private static final String INCREMENT_SQL = "update product set number_sold = number_sold + ?, version = version + 1 where id = ?";
+
+    private static final int FLUSH_CHUNK_SIZE = 1000;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Value("${product.sales.flush-interval:1s}")
+    Duration flushInterval = Duration.ofSeconds(1);
+
+    @Value("${product.sales.flush-size:10000}")
+    int flushSize = 10_000;
+
+    private final Map<Long, Long> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    private ScheduledExecutorService scheduler;
+
+    private Counter received;
+    private Counter flushed;
+    private Counter dropped;
+
+    @PostConstruct
+    void start() {
+        received = Counter.builder("sales.received")
+                .description("Units sold accepted by the sales endpoint")
+                .register(meterRegistry);
+        flushed = Counter.builder("sales.flushed")
+                .description("Units sold written to number_sold")
+                .register(meterRegistry);
+        dropped = Counter.builder("sales.dropped")
+                .description("Units sold dropped at flush, for unknown products or over the number_sold bound")
+                .register(meterRegistry);
+        Gauge.builder("sales.pending.products", pending, Map::size)
+                .description("Products with sales waiting for the next flush")
+                .register(meterRegistry);
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sales-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = flushInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        scheduler.shutdown();
+        scheduler.awaitTermination(30, TimeUnit.SECONDS);
+        flush();
+    }
+
+    /**
+     * Buffers the sales, all or none of them if one is invalid. The quantities of a product
+     * in one call must add up to at most MinorUnits.MAX_COUNT.
+     */
+    public void recordSales(List<SaleDTO> sales) {
+        if (sales == null) {
+            throw new InvalidSaleException("Sales cannot be null");
+        }
+        for (SaleDTO sale : sales) {
+            if (sale == null || sale.getProductId() == null) {
+                throw new InvalidSaleException("Product id is required");
+            }
+            if (sale.getQuantity() == null || sale.getQuantity() < 1 || sale.getQuantity() > MinorUnits.MAX_COUNT) {
+                throw new InvalidSaleException("Quantity must be between 1 and " + MinorUnits.MAX_COUNT);
+            }
+        }
+
+
+        // Validated as a whole first, so a bad product can not leave the batch half buffered
+        Map<Long, Long> quantities = new LinkedHashMap<>();
+        for (SaleDTO sale : sales) {
+            long quantity = quantities.merge(sale.getProductId(), sale.getQuantity(), Long::sum);
+            if (quantity > MinorUnits.MAX_COUNT) {
+                throw new InvalidSaleException("Sales of product " + sale.getProductId() + " add up to more than " + MinorUnits.MAX_COUNT);
+            }
+        }
+
+        for (Map.Entry<Long, Long> sale : quantities.entrySet()) {
+            buffer(sale);
+            received.increment(sale.getValue());
+        }
+
+        if (pending.size() >= flushSize && flushRequested.compareAndSet(false, true)) {
+            scheduler.execute(() -> {
+                flushRequested.set(false);
+                flushQuietly();
+            });
+        }
+    }
+
+    public int getPendingProducts() {
+        return pending.size();
+    }
+
+    /**
+     * Writes the buffered sales and returns the number of products updated. Called from the
+     * flush thread, and on shutdown.
+     */
+    public synchronized int flush() {
+        List<Map.Entry<Long, Long>> drained = new ArrayList<>();
+        for (Long productId : pending.keySet()) {
+            // A sale merged after the removal starts a new entry for the next flush
+            Long quantity = pending.remove(productId);
+            if (quantity != null) {
+                drained.add(Map.entry(productId, quantity));
+            }
+        }
+
+        int updated = 0;
+        List<ProductChangedEvent> events = new ArrayList<>();
+        try {
+            for (int from = 0; from < drained.size(); from += FLUSH_CHUNK_SIZE) {
+                try {
+                    updated += flushChunk(drained.subList(from, Math.min(from + FLUSH_CHUNK_SIZE, drained.size())), events);
+                } catch (RuntimeException e) {
+                    // The database is unavailable, keep this chunk and the ones not tried yet
+                    requeue(drained.subList(from, drained.size()));
+                    throw e;
+                }
+            }
+        } finally {
+            // Outside the requeue path, the chunks written so far are committed whatever a listener does
+            publish(events);
+        }
+        return updated;
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("Flushing sales failed", e);
+        }
+    }
+
+    private int flushChunk(List<Map.Entry<Long, Long>> chunk, List<ProductChangedEvent> events) {
+        try {
+            return write(chunk, events);
+        } catch (DataIntegrityViolationException e) {
+            // Some product went over its bound, find it by writing the rows one by one
+            int updated = 0;
+            for (Map.Entry<Long, Long> sale : chunk) {
+                try {
+                    updated += write(Collections.singletonList(sale), events);
+                } catch (DataIntegrityViolationException rowFailure) {
+                    drop(sale, rowFailure.getMostSpecificCause().getMessage());
+                } catch (RuntimeException rowFailure) {
+                    requeue(Collections.singletonList(sale));
+                }
+            }
+            return updated;
+        }
+    }
+
+    /**
+     * Writes the sales in one transaction and adds an event per updated product to events.
+     */
+    private int write(List<Map.Entry<Long, Long>> sales, List<ProductChangedEvent> events) {
+        List<ProductChangedEvent> written = new ArrayList<>(sales.size());
+        List<Map.Entry<Long, Long>> writtenSales = new ArrayList<>(sales.size());
+        List<Map.Entry<Long, Long>> unknown = new ArrayList<>();
+
+        transactionTemplate.execute(status -> {
+            List<Object[]> arguments = new ArrayList<>(sales.size());
+            for (Map.Entry<Long, Long> sale : sales) {
+                arguments.add(new Object[]{sale.getValue(), sale.getKey()});
+            }
+
+            int[] counts = jdbcTemplate.batchUpdate(INCREMENT_SQL, arguments);
+            List<Long> writtenIds = new ArrayList<>(sales.size());
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 0) {
+                    unknown.add(sales.get(i));
+                } else {
+                    writtenSales.add(sales.get(i));
+                    writtenIds.add(sales.get(i).getKey());
+                }
+            }
+
+            if (!writtenIds.isEmpty()) {
+                productRepository.findAllById(writtenIds).forEach(product -> written.add(ProductChangedEvent.saved(product)));
+            }
+            return null;
+        });
+
+        writtenSales.forEach(sale -> flushed.increment(sale.getValue()));
+        unknown.forEach(sale -> drop(sale, "no such product"));
+        events.addAll(written);
+        return writtenSales.size();
+    }
+
+    private void publish(List<ProductChangedEvent> events) {
+        for (ProductChangedEvent event : events) {
+            try {
+                eventPublisher.publishEvent(event);
+            } catch (RuntimeException e) {
+                log.warn("Announcing the sales of product {} failed", event.getProduct().getId(), e);
+            }
+        }
+    }
+
+    private void drop(Map.Entry<Long, Long> sale, String reason) {
+        log.warn("Dropped {} sales of product {}: {}", sale.getValue(), sale.getKey(), reason);
+        dropped.increment(sale.getValue());
+    }
+
+    private void requeue(List<Map.Entry<Long, Long>> sales) {
+        sales.forEach(this::buffer);
+    }
+
+    /**
+     * Adds the quantity to the buffered one of its product. number_sold can not go over
+     * MinorUnits.MAX_COUNT, so a sale taking the buffered quantity past it would be dropped at
+     * the flush anyway and is dropped here instead. Both quantities are at most MAX_COUNT, the
+     * sum can not overflow.
+     */
+    private void buffer(Map.Entry<Long, Long> sale) {
+        boolean[] overflowing = new boolean[1];
+        pending.merge(sale.getKey(), sale.getValue(), (buffered, quantity) -> {
+            if (buffered + quantity > MinorUnits.MAX_COUNT) {
+                overflowing[0] = true;
+                return buffered;
+            }
+            return buffered + quantity;
+        });
+        if (overflowing[0]) {
+            drop(sale, "over the number_sold bound");
+        }
+    }
+}
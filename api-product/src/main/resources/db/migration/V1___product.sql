@@ -1,5 +1,5 @@
 create table product(
-  id INTEGER IDENTITY PRIMARY KEY,
+  id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
   product_name varchar(50),
   unit_price numeric,
   category varchar(50),
@@ -0,0 +1,5 @@
+-- H2 has no expression indexes, so margin is materialized as a generated column and indexed
+alter table product add column margin numeric generated always as (number_sold * (unit_price - unit_cost));
+
+create index product_margin_idx on product(margin, id);
+create index product_number_sold_idx on product(number_sold, id);
@@ -0,0 +1,2 @@
+-- Keyset pagination filtered on category walks this index in id order
+create index product_category_id_idx on product(category, id);
@@ -0,0 +1,8 @@
+-- Ids come from a pooled sequence so Hibernate can allocate them in blocks of 50 and batch inserts.
+-- The column has no default any more: inserts outside Hibernate must take an id from the sequence
+-- and keep clear of the blocks already handed out.
+create sequence product_seq start with 1 increment by 50;
+
+alter table product alter column id drop identity;
+
+alter sequence product_seq restart with (select coalesce(max(id), 0) + 51 from product);
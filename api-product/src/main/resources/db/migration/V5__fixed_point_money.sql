@@ -0,0 +1,29 @@
+-- Prices and costs become bigint minor units (øre) and number_sold a bigint count. Bare numeric
+-- has scale 0 in H2 2.x, so the stored amounts were whole kroner and convert exactly.
+-- Missing figures become 0. The bounds match MinorUnits, so number_sold * unit_price_minor
+-- of one product always fits in a bigint.
+
+-- The generated margin column depends on the columns being replaced
+drop index product_margin_idx;
+drop index product_number_sold_idx;
+alter table product drop column margin;
+
+alter table product add column unit_price_minor bigint default 0 not null;
+alter table product add column unit_cost_minor bigint default 0 not null;
+update product set unit_price_minor = coalesce(unit_price, 0) * 100, unit_cost_minor = coalesce(unit_cost, 0) * 100;
+alter table product drop column unit_price;
+alter table product drop column unit_cost;
+
+update product set number_sold = 0 where number_sold is null;
+alter table product alter column number_sold set data type bigint;
+alter table product alter column number_sold set default 0;
+alter table product alter column number_sold set not null;
+
+alter table product add constraint product_unit_price_range check (unit_price_minor between 0 and 10000000000);
+alter table product add constraint product_unit_cost_range check (unit_cost_minor between 0 and 10000000000);
+alter table product add constraint product_number_sold_range check (number_sold between 0 and 100000000);
+
+alter table product add column margin bigint generated always as (number_sold * (unit_price_minor - unit_cost_minor));
+
+create index product_margin_idx on product(margin, id);
+create index product_number_sold_idx on product(number_sold, id);
@@ -0,0 +1,18 @@
+-- One row per generated financial report: the aggregates in minor units and the ids of the
+-- four extreme products. The ids are not foreign keys, history outlives deleted products.
+create sequence report_snapshot_seq start with 1 increment by 1;
+
+create table report_snapshot(
+  id bigint primary key,
+  created_time timestamp not null,
+  total_turnover_minor bigint not null,
+  total_cost_minor bigint not null,
+  total_margin_minor bigint not null,
+  highest_margin_product_id bigint,
+  lowest_margin_product_id bigint,
+  most_sold_product_id bigint,
+  least_sold_product_id bigint
+);
+
+-- Snapshots are looked up as of a point in time and listed by time
+create index report_snapshot_created_time_idx on report_snapshot(created_time, id);
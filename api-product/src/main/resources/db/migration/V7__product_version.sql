@@ -0,0 +1,4 @@
+-- Optimistic locking: Hibernate checks and increments the version on every update and delete
+-- of a Product. Statements that change a product outside Hibernate must increment it as well,
+-- it is also the product's ETag.
+alter table product add column version bigint default 0 not null;
@@ -0,0 +1,6 @@
+-- Indexes for the criteria of GET /products/search, ending in id like the others so a match
+-- on one value is already in keyset order. category and number_sold are indexed by
+-- product_category_id_idx (V3) and product_number_sold_idx (V5). A name prefix is a range
+-- scan over product_name.
+create index product_name_id_idx on product(product_name, id);
+create index product_unit_price_id_idx on product(unit_price_minor, id);
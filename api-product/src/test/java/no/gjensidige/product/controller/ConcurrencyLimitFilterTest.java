@@ -0,0 +1,51 @@
+package no.gjensidige.product.controller;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import jakarta.servlet.FilterChain;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class ConcurrencyLimitFilterTest {
+
+    ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(1, Duration.ofMillis(10));
+
+    @Test
+    public void doFilter_ReleasesPermitAfterRequest() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/products/1"), response, new MockFilterChain());
+
+        assertEquals(200, response.getStatus());
+        assertEquals(1, filter.availablePermits());
+    }
+
+    @Test
+    public void doFilter_WithoutPermit_Returns503() throws Exception {
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+
+        // The outer request holds the only permit while the inner one arrives
+        FilterChain holdingChain = (request, response) ->
+                filter.doFilter(new MockHttpServletRequest("GET", "/reports/financial"), rejected, new MockFilterChain());
+        filter.doFilter(new MockHttpServletRequest("GET", "/products/1"), new MockHttpServletResponse(), holdingChain);
+
+        assertEquals(503, rejected.getStatus());
+        assertEquals("1", rejected.getHeader("Retry-After"));
+        assertEquals(1, filter.availablePermits());
+    }
+
+    @Test
+    public void doFilter_OtherPaths_AreNotLimited() throws Exception {
+        AtomicInteger permitsSeen = new AtomicInteger();
+        FilterChain chain = (request, response) -> permitsSeen.set(filter.availablePermits());
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/actuator/health"), new MockHttpServletResponse(), chain);
+
+        assertEquals(1, permitsSeen.get());
+    }
+}
@@ -2,16 +2,34 @@ package no.gjensidige.product.controller;
 
 import no.gjensidige.product.dto.ProductDTO;
 import no.gjensidige.product.entity.Product;
+import no.gjensidige.product.model.BatchItemResult;
+import no.gjensidige.product.model.ExportFormat;
+import no.gjensidige.product.model.ProductFilter;
+import no.gjensidige.product.model.ProductPage;
+import no.gjensidige.product.repository.ProductRepository;
+import no.gjensidige.product.service.ProductBatchService;
+import no.gjensidige.product.service.ProductExportService;
 import no.gjensidige.product.service.ProductService;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
-
-import java.math.BigInteger;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
 import java.util.*;
 
 import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.openMocks;
@@ -26,6 +44,12 @@ public class ProductControllerTest {
     @Mock
     private ProductService productService;
 
+    @Mock
+    private ProductExportService productExportService;
+
+    @Mock
+    private ProductBatchService productBatchService;
+
     @Before
     public void init() {
         openMocks(this);
@@ -38,6 +62,8 @@ public class ProductControllerTest {
         uniqueNames.forEach(name ->
         {
             Product p = new Product();
+            p.setId((long) productList.size() + 1);
+            p.setVersion(2);
             p.setProductName(name);
             productList.add(p);
         });
@@ -45,14 +71,53 @@ public class ProductControllerTest {
 
         when(productService.getAllProducts()).thenReturn(productList);
 
-        List<Product> productList1 = productController.getProducts();
+        ServletWebRequest request = request(new MockHttpServletRequest("GET", "/products/"));
+        List<Product> productList1 = productController.getProducts(request, request.getResponse());
 
         verify(productService).getAllProducts();
+        // Without If-None-Match the tag comes from the loaded list, not from another query
+        verify(productService, never()).getCatalogVersion();
+        assertEquals("\"3-6-6\"", request.getResponse().getHeader(HttpHeaders.ETAG));
 
         assertEquals(3, productList1.size());
 
     }
 
+    @Test
+    public void getProductPage() {
+        ProductPage expectedPage = new ProductPage(new ArrayList<>(), "token");
+
+        when(productService.getProductPage("after", 50, "Hardware")).thenReturn(expectedPage);
+
+        ProductPage page = productController.getProductPage("after", 50, "Hardware");
+
+        verify(productService).getProductPage("after", 50, "Hardware");
+        assertEquals(expectedPage, page);
+    }
+
+    @Test
+    public void searchProducts() {
+        ProductFilter filter = new ProductFilter();
+        filter.setCategory("Hardware");
+        ProductPage expectedPage = new ProductPage(Collections.emptyList(), null);
+
+        when(productService.searchProducts(filter, "after", 50)).thenReturn(expectedPage);
+
+        assertSame(expectedPage, productController.searchProducts(filter, "after", 50));
+    }
+
+    @Test
+    public void exportProducts() throws Exception {
+        ResponseEntity<StreamingResponseBody> response = productController.exportProducts(ExportFormat.CSV);
+
+        assertEquals(MediaType.parseMediaType("text/csv"), response.getHeaders().getContentType());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        verify(productExportService).exportProducts(ExportFormat.CSV, out);
+    }
+
     @Test
     public void getProduct() {
         Product p = new Product();
@@ -60,12 +125,56 @@ public class ProductControllerTest {
 
         when(productService.getProduct(1l)).thenReturn(p);
 
-        Product product = productController.getProduct(1l);
+        Product product = productController.getProduct(1l, request(new MockHttpServletRequest("GET", "/products/1")));
 
         verify(productService).getProduct(1l);
         assertEquals(1l, product.getId().longValue());
     }
 
+    @Test
+    public void getProduct_WithCurrentETag_IsNotModified() {
+        Product p = new Product();
+        p.setId(1l);
+        p.setVersion(4);
+        when(productService.getProduct(1l)).thenReturn(p);
+
+        MockHttpServletRequest httpRequest = new MockHttpServletRequest("GET", "/products/1");
+        httpRequest.addHeader(HttpHeaders.IF_NONE_MATCH, "\"4\"");
+        ServletWebRequest request = request(httpRequest);
+
+        assertNull(productController.getProduct(1l, request));
+        assertEquals(HttpStatus.NOT_MODIFIED.value(), request.getResponse().getStatus());
+        assertEquals("\"4\"", request.getResponse().getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    public void getProducts_WithCurrentETag_DoesNotLoadProducts() {
+        ProductRepository.CatalogVersion version = catalogVersion(3L);
+        when(productService.getCatalogVersion()).thenReturn(version);
+
+        MockHttpServletRequest httpRequest = new MockHttpServletRequest("GET", "/products/");
+        httpRequest.addHeader(HttpHeaders.IF_NONE_MATCH, ProductController.etag(version));
+        ServletWebRequest request = request(httpRequest);
+
+        assertNull(productController.getProducts(request, request.getResponse()));
+        assertEquals(HttpStatus.NOT_MODIFIED.value(), request.getResponse().getStatus());
+        verify(productService, never()).getAllProducts();
+    }
+
+    @Test
+    public void getProducts_WithStaleETag_LoadsProductsUnderTheCurrentETag() {
+        ProductRepository.CatalogVersion version = catalogVersion(3L);
+        when(productService.getCatalogVersion()).thenReturn(version);
+        when(productService.getAllProducts()).thenReturn(new ArrayList<>());
+
+        MockHttpServletRequest httpRequest = new MockHttpServletRequest("GET", "/products/");
+        httpRequest.addHeader(HttpHeaders.IF_NONE_MATCH, "\"2-3-0\"");
+        ServletWebRequest request = request(httpRequest);
+
+        assertNotNull(productController.getProducts(request, request.getResponse()));
+        assertEquals(ProductController.etag(version), request.getResponse().getHeader(HttpHeaders.ETAG));
+    }
+
     @Test
     public void createProduct() {
         Long id = 1L;
@@ -74,15 +183,15 @@ public class ProductControllerTest {
         inputProductDTO.setId(id);
         inputProductDTO.setCategory("Hardware");
         inputProductDTO.setProductName("Seagate Baracuda 500GB");
-        inputProductDTO.setNumbersold(BigInteger.valueOf(200));
-        inputProductDTO.setUnitPrice(55.50);
+        inputProductDTO.setNumberSold(200L);
+        inputProductDTO.setUnitPrice(BigDecimal.valueOf(55.50));
 
         Product expectedProduct = new Product();
         expectedProduct.setId(id);
         expectedProduct.setCategory("Hardware");
         expectedProduct.setProductName("Seagate Baracuda 500GB");
-        expectedProduct.setNumberSold(BigInteger.valueOf(200));
-        expectedProduct.setUnitPrice(55.50);
+        expectedProduct.setNumberSold(200L);
+        expectedProduct.setUnitPrice(BigDecimal.valueOf(55.50));
 
         when(productService.createProduct(inputProductDTO)).thenReturn(expectedProduct);
 
@@ -101,38 +210,135 @@ public class ProductControllerTest {
         inputProductDTO.setId(id);
         inputProductDTO.setCategory("Hardware 2.0");
         inputProductDTO.setProductName("Seagate Baracuda 500GB");
-        inputProductDTO.setNumbersold(BigInteger.valueOf(300));
-        inputProductDTO.setUnitPrice(65.50);
+        inputProductDTO.setNumberSold(300L);
+        inputProductDTO.setUnitPrice(BigDecimal.valueOf(65.50));
 
         Product expectedUpdatedProduct = new Product();
         expectedUpdatedProduct.setId(id);
         expectedUpdatedProduct.setCategory("Hardware 2.0");
         expectedUpdatedProduct.setProductName("Seagate Baracuda 500GB");
-        expectedUpdatedProduct.setNumberSold(BigInteger.valueOf(300));
-        expectedUpdatedProduct.setUnitPrice(65.50);
+        expectedUpdatedProduct.setNumberSold(300L);
+        expectedUpdatedProduct.setUnitPrice(BigDecimal.valueOf(65.50));
+
+        expectedUpdatedProduct.setVersion(2);
 
-        when(productService.updateProduct(id, inputProductDTO)).thenReturn(expectedUpdatedProduct);
+        when(productService.updateProduct(id, inputProductDTO, Collections.singleton(1L))).thenReturn(expectedUpdatedProduct);
 
-        Product actualUpdatedProduct = productController.updateProduct(id, inputProductDTO);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        Product actualUpdatedProduct = productController.updateProduct(id, inputProductDTO, "\"1\"", response);
 
-        verify(productService).updateProduct(id, inputProductDTO);
+        verify(productService).updateProduct(id, inputProductDTO, Collections.singleton(1L));
+        assertEquals("\"2\"", response.getHeader(HttpHeaders.ETAG));
         assertEquals(expectedUpdatedProduct.getCategory(), actualUpdatedProduct.getCategory());
         assertEquals(expectedUpdatedProduct.getProductName(), actualUpdatedProduct.getProductName());
     }
 
+    @Test
+    public void patchProduct_ReturnsRepresentationByDefault() {
+        ProductDTO changes = new ProductDTO();
+        changes.setUnitPrice(BigDecimal.valueOf(12.50));
+
+        Product patched = new Product();
+        patched.setId(1L);
+        patched.setUnitPrice(BigDecimal.valueOf(12.50));
+        patched.setVersion(4);
+
+        when(productService.patchProduct(1L, changes, null)).thenReturn(patched);
+
+        ResponseEntity<Product> response = productController.patchProduct(1L, changes, null, null);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("\"4\"", response.getHeaders().getETag());
+        assertSame(patched, response.getBody());
+    }
+
+    @Test
+    public void patchProduct_WithReturnMinimal_HasNoBody() {
+        ProductDTO changes = new ProductDTO();
+        changes.setNumberSold(5L);
+
+        Product patched = new Product();
+        patched.setVersion(3);
+
+        when(productService.patchProduct(1L, changes, Collections.singleton(2L))).thenReturn(patched);
+
+        ResponseEntity<Product> response = productController.patchProduct(1L, changes, "\"2\"", "return=minimal");
+
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode());
+        assertEquals("\"3\"", response.getHeaders().getETag());
+        assertEquals("return=minimal", response.getHeaders().getFirst("Preference-Applied"));
+        assertNull(response.getBody());
+    }
+
     @Test
     public void deleteProduct() {
 
         Product p = new Product();
         p.setId(1l);
 
-        when(productService.deleteProduct(1l)).thenReturn(p);
+        when(productService.deleteProduct(1l, null)).thenReturn(p);
 
-        Product product = productController.deleteProduct(1l);
+        Product product = productController.deleteProduct(1l, null);
 
-        verify(productService).deleteProduct(1l);
+        verify(productService).deleteProduct(1l, null);
 
         assertEquals(1l, product.getId().longValue());
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void versions_ParsesIfMatch() {
+        assertNull(ProductController.versions(null));
+        assertNull(ProductController.versions("*"));
+        assertEquals(new HashSet<>(Arrays.asList(1L, 7L)), ProductController.versions("\"1\", W/\"3\", \"x\", \"7\""));
+        assertTrue(ProductController.versions("garbage").isEmpty());
+    }
+
+    @Test
+    public void createProducts() {
+        List<ProductDTO> inputProducts = Collections.singletonList(new ProductDTO());
+        List<BatchItemResult> expectedResults =
+                Collections.singletonList(BatchItemResult.of(0, 1L, BatchItemResult.Status.CREATED));
+
+        when(productBatchService.createProducts(inputProducts)).thenReturn(expectedResults);
+
+        assertEquals(expectedResults, productController.createProducts(inputProducts));
+        verify(productBatchService).createProducts(inputProducts);
+    }
+
+    @Test
+    public void updateProducts() {
+        List<ProductDTO> inputProducts = Collections.singletonList(new ProductDTO());
+        List<BatchItemResult> expectedResults =
+                Collections.singletonList(BatchItemResult.of(0, 1L, BatchItemResult.Status.UPDATED));
+
+        when(productBatchService.updateProducts(inputProducts)).thenReturn(expectedResults);
+
+        assertEquals(expectedResults, productController.updateProducts(inputProducts));
+        verify(productBatchService).updateProducts(inputProducts);
+    }
+
+    @Test
+    public void deleteProducts() {
+        List<ProductDTO> inputProducts = Collections.singletonList(new ProductDTO());
+        List<BatchItemResult> expectedResults =
+                Collections.singletonList(BatchItemResult.of(0, 1L, BatchItemResult.Status.DELETED));
+
+        when(productBatchService.deleteProducts(inputProducts)).thenReturn(expectedResults);
+
+        assertEquals(expectedResults, productController.deleteProducts(inputProducts));
+        verify(productBatchService).deleteProducts(inputProducts);
+    }
+
+    private static ServletWebRequest request(MockHttpServletRequest httpRequest) {
+        return new ServletWebRequest(httpRequest, new MockHttpServletResponse());
+    }
+
+    private static ProductRepository.CatalogVersion catalogVersion(long productCount) {
+        ProductRepository.CatalogVersion version = mock(ProductRepository.CatalogVersion.class);
+        when(version.getProductCount()).thenReturn(productCount);
+        when(version.getIdSum()).thenReturn(6L);
+        when(version.getVersionSum()).thenReturn(0L);
+        return version;
+    }
+}
@@ -0,0 +1,51 @@
+package no.gjensidige.product.controller;
+
+import no.gjensidige.product.entity.Product;
+import no.gjensidige.product.model.FinancialReport;
+import no.gjensidige.product.service.ReactiveProductService;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.openMocks;
+
+public class ReactiveProductControllerTest {
+
+    @InjectMocks
+    private ReactiveProductController reactiveProductController;
+
+    @InjectMocks
+    private ReactiveReportController reactiveReportController;
+
+    @Mock
+    private ReactiveProductService reactiveProductService;
+
+    @Before
+    public void init() {
+        openMocks(this);
+    }
+
+    @Test
+    public void getProducts() {
+        Product product = new Product();
+        when(reactiveProductService.streamProducts("Hardware")).thenReturn(Flux.just(product));
+
+        assertEquals(Collections.singletonList(product), reactiveProductController.getProducts("Hardware").collectList().block());
+    }
+
+    @Test
+    public void getFinancialReport() {
+        FinancialReport report = new FinancialReport();
+        when(reactiveProductService.generateFinancialReport()).thenReturn(Mono.just(report));
+
+        assertSame(report, reactiveReportController.getFinancialReport().block());
+    }
+}
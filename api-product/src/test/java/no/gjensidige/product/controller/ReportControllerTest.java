@@ -1,17 +1,24 @@
 package no.gjensidige.product.controller;
 
 import no.gjensidige.product.entity.Product;
+import no.gjensidige.product.model.CategoryReport;
 import no.gjensidige.product.model.FinancialReport;
+import no.gjensidige.product.model.ProductRanking;
+import no.gjensidige.product.model.RankingMetric;
+import no.gjensidige.product.service.ReportHistoryService;
 import no.gjensidige.product.service.ReportService;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 
-import java.math.BigInteger;
+import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.*;
 
 import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.openMocks;
@@ -24,6 +31,9 @@ public class ReportControllerTest {
     @Mock
     private ReportService reportService;
 
+    @Mock
+    private ReportHistoryService reportHistoryService;
+
     @Before
     public void init() {
         openMocks(this);
@@ -37,31 +47,31 @@ public class ReportControllerTest {
         for(int i = 0; i<uniqueNames.size(); i++) {
             Product p = new Product();
             p.setProductName(names.get(i));
-            p.setNumberSold(BigInteger.valueOf(200L * (i + 1)));
-            p.setUnitPrice(55.50 + (i * 10));
-            p.setUnitCost(10.50 + (i * 10));
+            p.setNumberSold(200L * (i + 1));
+            p.setUnitPrice(BigDecimal.valueOf(55.50 + (i * 10)));
+            p.setUnitCost(BigDecimal.valueOf(10.50 + (i * 10)));
             productList.add(p);
         }
 
         Product leastSoldProduct = productList.get(0);
         Product mostSoldProduct = productList.get(2);
 
-        Double expectedTotalTurnover =
-                productList.stream().mapToDouble(p -> p.getNumberSold().doubleValue() * p.getUnitPrice()).sum();
+        long expectedTotalTurnover =
+                productList.stream().mapToLong(p -> p.getNumberSold() * p.getUnitPriceMinor()).sum();
 
-        Double expectedTotalCost =
-                productList.stream().mapToDouble(p -> p.getNumberSold().doubleValue() * p.getUnitCost()).sum();
+        long expectedTotalCost =
+                productList.stream().mapToLong(p -> p.getNumberSold() * p.getUnitCostMinor()).sum();
 
-        Double expectedTotalMargin = expectedTotalTurnover - expectedTotalCost;
+        long expectedTotalMargin = expectedTotalTurnover - expectedTotalCost;
 
         FinancialReport expectedReport = new FinancialReport();
         expectedReport.setHighestMarginProduct(mostSoldProduct);
         expectedReport.setLeastSoldProduct(leastSoldProduct);
         expectedReport.setMostSoldProduct(mostSoldProduct);
         expectedReport.setLowestMarginProduct(leastSoldProduct);
-        expectedReport.setTotalCost(expectedTotalCost);
-        expectedReport.setTotalMargin(expectedTotalMargin);
-        expectedReport.setTotalTurnover(expectedTotalTurnover);
+        expectedReport.setTotalCostMinor(expectedTotalCost);
+        expectedReport.setTotalMarginMinor(expectedTotalMargin);
+        expectedReport.setTotalTurnoverMinor(expectedTotalTurnover);
 
         when(reportService.generateFinancialReport()).thenReturn(expectedReport);
 
@@ -73,4 +83,49 @@ public class ReportControllerTest {
         assertEquals(expectedReport.getHighestMarginProduct(), actualReport.getHighestMarginProduct());
         assertEquals(expectedReport.getLeastSoldProduct(), actualReport.getLeastSoldProduct());
     }
+
+    @Test
+    public void getFinancialReportByCategory(){
+        CategoryReport categoryReport = new CategoryReport();
+        categoryReport.setCategory("Forsikring");
+        when(reportService.generateCategoryReports()).thenReturn(Collections.singletonList(categoryReport));
+
+        List<CategoryReport> actualReports = reportController.getFinancialReportByCategory();
+
+        verify(reportService).generateCategoryReports();
+        assertEquals(Collections.singletonList(categoryReport), actualReports);
+    }
+
+    @Test
+    public void getRanking_CapsK(){
+        ProductRanking ranking = new ProductRanking();
+        when(reportService.generateRanking(RankingMetric.UNITS_SOLD, ReportController.MAX_RANKING_SIZE)).thenReturn(ranking);
+
+        assertEquals(ranking, reportController.getRanking(RankingMetric.UNITS_SOLD, 1_000_000));
+    }
+
+    @Test
+    public void getRanking_RaisesKToOne(){
+        ProductRanking ranking = new ProductRanking();
+        when(reportService.generateRanking(RankingMetric.UNITS_SOLD, 1)).thenReturn(ranking);
+
+        assertEquals(ranking, reportController.getRanking(RankingMetric.UNITS_SOLD, 0));
+    }
+
+    @Test
+    public void getReportHistory_RaisesLimitToOne(){
+        Instant from = Instant.parse("2024-01-01T00:00:00Z");
+        Instant to = Instant.parse("2024-01-08T00:00:00Z");
+
+        reportController.getReportHistory(from, to, -1);
+
+        verify(reportHistoryService).getSnapshots(from, to, 1);
+    }
+
+    @Test
+    public void getWeeklyReportDeltas_RaisesWeeksToZero(){
+        reportController.getWeeklyReportDeltas(null, -1);
+
+        verify(reportHistoryService).getWeeklyDeltas(any(Instant.class), eq(0));
+    }
 }
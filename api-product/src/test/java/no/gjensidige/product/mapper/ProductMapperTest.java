@@ -0,0 +1,75 @@
+package no.gjensidige.product.mapper;
+
+import no.gjensidige.product.dto.ProductDTO;
+import no.gjensidige.product.entity.Product;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.Assert.*;
+
+public class ProductMapperTest {
+
+    ProductMapper productMapper = new ProductMapper();
+
+    @Test
+    public void toDTO() {
+        Product product = product();
+
+        ProductDTO productDTO = productMapper.toDTO(product);
+
+        assertEquals(product.getId(), productDTO.getId());
+        assertEquals(product.getProductName(), productDTO.getProductName());
+        assertEquals(product.getCategory(), productDTO.getCategory());
+        assertEquals(product.getImageLink(), productDTO.getImageLink());
+        assertEquals(product.getUnitCost(), productDTO.getUnitCost());
+        assertEquals(product.getUnitPrice(), productDTO.getUnitPrice());
+        assertEquals(Long.valueOf(product.getNumberSold()), productDTO.getNumberSold());
+    }
+
+    @Test
+    public void toEntity() {
+        ProductDTO productDTO = productMapper.toDTO(product());
+
+        Product product = productMapper.toEntity(productDTO);
+
+        assertEquals(productDTO.getId(), product.getId());
+        assertEquals(productDTO.getProductName(), product.getProductName());
+        assertEquals(productDTO.getCategory(), product.getCategory());
+        assertEquals(productDTO.getImageLink(), product.getImageLink());
+        assertEquals(productDTO.getUnitCost(), product.getUnitCost());
+        assertEquals(productDTO.getUnitPrice(), product.getUnitPrice());
+        assertEquals(productDTO.getNumberSold(), Long.valueOf(product.getNumberSold()));
+    }
+
+    @Test
+    public void merge_SkipsNullFieldsAndId() {
+        Product product = product();
+        ProductDTO productDTO = new ProductDTO();
+        productDTO.setId(42L);
+        productDTO.setCategory("Software");
+        productDTO.setNumberSold(10L);
+
+        productMapper.merge(productDTO, product);
+
+        assertEquals(Long.valueOf(1L), product.getId());
+        assertEquals("Software", product.getCategory());
+        assertEquals(10L, product.getNumberSold());
+        assertEquals("Seagate Baracuda 500GB", product.getProductName());
+        assertEquals("static.gjensidige.com/", product.getImageLink());
+        assertEquals(3000, product.getUnitCostMinor());
+        assertEquals(5550, product.getUnitPriceMinor());
+    }
+
+    private static Product product() {
+        Product product = new Product();
+        product.setId(1L);
+        product.setProductName("Seagate Baracuda 500GB");
+        product.setCategory("Hardware");
+        product.setImageLink("static.gjensidige.com/");
+        product.setUnitCost(BigDecimal.valueOf(30.0));
+        product.setUnitPrice(BigDecimal.valueOf(55.50));
+        product.setNumberSold(200L);
+        return product;
+    }
+}
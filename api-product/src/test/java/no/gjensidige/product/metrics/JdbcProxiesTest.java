@@ -0,0 +1,90 @@
+package no.gjensidige.product.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class JdbcProxiesTest {
+
+    JdbcStatistics jdbcStatistics;
+
+    SimpleMeterRegistry meterRegistry;
+
+    DataSource dataSource;
+
+    @Before
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        jdbcStatistics = new JdbcStatistics();
+        jdbcStatistics.meterRegistry = meterRegistry;
+        jdbcStatistics.registerMeters();
+
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:" + UUID.randomUUID());
+        dataSource = JdbcProxies.dataSource(h2, () -> jdbcStatistics);
+    }
+
+    @Test
+    public void countsStatementsAndRows() throws Exception {
+        jdbcStatistics.begin();
+
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("create table t(id int)");
+
+            try (PreparedStatement insert = connection.prepareStatement("insert into t values (?)")) {
+                for (int i = 0; i < 3; i++) {
+                    insert.setInt(1, i);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+
+            try (ResultSet resultSet = statement.executeQuery("select id from t")) {
+                while (resultSet.next()) {
+                    resultSet.getInt(1);
+                }
+            }
+        }
+
+        JdbcStatistics.Counts counts = jdbcStatistics.end();
+        assertEquals(3, counts.getStatements());
+        assertEquals(3, counts.getRows());
+        assertEquals(3.0, meterRegistry.get("jdbc.statements").counter().count(), 0);
+        assertEquals(3.0, meterRegistry.get("jdbc.rows").counter().count(), 0);
+    }
+
+    @Test
+    public void outsideOfBeginEnd_OnlyTotalsAreCounted() throws Exception {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("select 1");
+        }
+
+        assertEquals(0, jdbcStatistics.end().getStatements());
+        assertEquals(1.0, meterRegistry.get("jdbc.statements").counter().count(), 0);
+    }
+
+    @Test
+    public void equals_IsIdentity() {
+        assertEquals(dataSource, dataSource);
+        assertEquals(dataSource.hashCode(), dataSource.hashCode());
+        assertNotEquals(dataSource, JdbcProxies.dataSource(new JdbcDataSource(), () -> jdbcStatistics));
+    }
+
+    @Test
+    public void unwrap_ReachesTheDriver() throws Exception {
+        assertTrue(dataSource.isWrapperFor(JdbcDataSource.class));
+        assertNotNull(dataSource.unwrap(JdbcDataSource.class));
+    }
+}
@@ -0,0 +1,70 @@
+package no.gjensidige.product.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import no.gjensidige.product.exception.QueryBudgetExceededException;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class JdbcStatisticsTest {
+
+    JdbcStatistics jdbcStatistics;
+
+    @Before
+    public void setUp() {
+        jdbcStatistics = new JdbcStatistics();
+        jdbcStatistics.meterRegistry = new SimpleMeterRegistry();
+        jdbcStatistics.registerMeters();
+    }
+
+    @Test
+    public void nestedScopes_CountTowardsEveryActiveScope() {
+        jdbcStatistics.begin("request", 0);
+        jdbcStatistics.statementExecuted();
+
+        JdbcStatistics.Counts inner = jdbcStatistics.count(() -> {
+            jdbcStatistics.statementExecuted();
+            jdbcStatistics.rowFetched();
+        });
+
+        JdbcStatistics.Counts outer = jdbcStatistics.end();
+
+        assertEquals(1, inner.getStatements());
+        assertEquals(1, inner.getRows());
+        assertEquals(2, outer.getStatements());
+        assertEquals(1, outer.getRows());
+        assertEquals(2.0, jdbcStatistics.meterRegistry.get("jdbc.statements").counter().count(), 0);
+    }
+
+    @Test
+    public void overBudget_WithLog_KeepsCounting() {
+        jdbcStatistics.begin("ProductService.updateProduct", 1);
+        jdbcStatistics.statementExecuted();
+        jdbcStatistics.statementExecuted();
+        jdbcStatistics.statementExecuted();
+
+        assertEquals(3, jdbcStatistics.end().getStatements());
+    }
+
+    @Test
+    public void overBudget_WithReject_Throws() {
+        jdbcStatistics.budgetAction = QueryBudgetAction.REJECT;
+        jdbcStatistics.begin("ProductService.updateProduct", 1);
+        jdbcStatistics.statementExecuted();
+
+        try {
+            jdbcStatistics.statementExecuted();
+            fail("Did not throw QueryBudgetExceededException");
+        } catch (QueryBudgetExceededException e) {
+            assertTrue(e.getMessage().startsWith("ProductService.updateProduct"));
+        } finally {
+            jdbcStatistics.end();
+        }
+    }
+
+    @Test
+    public void end_WithoutBegin_ReturnsEmptyCounts() {
+        assertEquals(0, jdbcStatistics.end().getStatements());
+    }
+}
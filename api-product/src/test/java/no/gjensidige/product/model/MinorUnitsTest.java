@@ -0,0 +1,37 @@
+package no.gjensidige.product.model;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.Assert.assertEquals;
+
+public class MinorUnitsTest {
+
+    @Test
+    public void of_IsExact() {
+        assertEquals(5550, MinorUnits.of(new BigDecimal("55.5")));
+        assertEquals(1, MinorUnits.of(new BigDecimal("0.01")));
+        assertEquals(MinorUnits.MAX_AMOUNT, MinorUnits.of(MinorUnits.toDecimal(MinorUnits.MAX_AMOUNT)));
+    }
+
+    @Test
+    public void toDecimal_HasTwoDecimals() {
+        assertEquals(new BigDecimal("55.50"), MinorUnits.toDecimal(5550));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void of_WithThreeDecimals_Throws() {
+        MinorUnits.of(new BigDecimal("0.005"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void of_AboveMaximum_Throws() {
+        MinorUnits.of(MinorUnits.toDecimal(MinorUnits.MAX_AMOUNT + 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void checkCount_Negative_Throws() {
+        MinorUnits.checkCount(-1);
+    }
+}
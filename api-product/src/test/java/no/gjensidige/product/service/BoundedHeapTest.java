@@ -0,0 +1,51 @@
+package no.gjensidige.product.service;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class BoundedHeapTest {
+
+    @Test
+    public void drain_MatchesFullSort() {
+        Random random = new Random(11);
+        long[] values = new long[2000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextInt(100) - 50;
+        }
+
+        BoundedHeap highest = BoundedHeap.highest(25);
+        BoundedHeap lowest = BoundedHeap.lowest(25);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < values.length; i++) {
+            highest.offer(values[i], i);
+            lowest.offer(values[i], i);
+            ids.add((long) i);
+        }
+
+        Comparator<Long> byValue = Comparator.comparingLong(id -> values[id.intValue()]);
+        ids.sort(byValue.reversed().thenComparing(Comparator.naturalOrder()));
+        assertArrayEquals(ids.subList(0, 25).stream().mapToLong(Long::longValue).toArray(), highest.drain());
+
+        ids.sort(byValue.thenComparing(Comparator.naturalOrder()));
+        assertArrayEquals(ids.subList(0, 25).stream().mapToLong(Long::longValue).toArray(), lowest.drain());
+        assertEquals(0, lowest.size());
+    }
+
+    @Test
+    public void drain_WithFewerValuesThanCapacity_ReturnsAll() {
+        BoundedHeap heap = BoundedHeap.highest(10);
+        heap.offer(5, 3);
+        heap.offer(7, 1);
+        heap.offer(5, 2);
+
+        assertArrayEquals(new long[]{1, 2, 3}, heap.drain());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void highest_WithZeroCapacity_Throws() {
+        BoundedHeap.highest(0);
+    }
+}
@@ -0,0 +1,106 @@
+package no.gjensidige.product.service;
+
+import no.gjensidige.product.entity.Product;
+import no.gjensidige.product.model.FinancialReport;
+import no.gjensidige.product.repository.ProductRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.openMocks;
+
+public class ParallelReportGeneratorTest {
+
+    @InjectMocks
+    ParallelReportGenerator parallelReportGenerator;
+
+    @Mock
+    ProductRepository productRepository;
+
+    @Mock
+    ProductRepository.IdRange idRange;
+
+    List<Product> productList;
+
+    @Before
+    public void setUp() throws Exception {
+        openMocks(this);
+
+        Random random = new Random(7);
+        productList = new ArrayList<>();
+        for (long id = 1; id <= 100; id++) {
+            // leave gaps in the id space like deleted products would
+            if (id % 7 == 0) {
+                continue;
+            }
+            Product p = new Product();
+            p.setId(id);
+            p.setNumberSold(random.nextInt(50));
+            p.setUnitPriceMinor(random.nextInt(1_000_000));
+            p.setUnitCostMinor(random.nextInt(1_000_000));
+            productList.add(p);
+        }
+
+        when(idRange.getMinId()).thenReturn(1L);
+        when(idRange.getMaxId()).thenReturn(100L);
+        when(productRepository.findIdRange()).thenReturn(idRange);
+        when(productRepository.findByIdBetween(anyLong(), anyLong())).thenAnswer(invocation -> {
+            long from = invocation.getArgument(0);
+            long to = invocation.getArgument(1);
+            return productList.stream()
+                    .filter(p -> p.getId() >= from && p.getId() <= to)
+                    .collect(Collectors.toList());
+        });
+    }
+
+    @After
+    public void tearDown() {
+        parallelReportGenerator.shutdown();
+    }
+
+    @Test
+    public void accumulate_MatchesSequentialScan() {
+        FinancialReport expected = ReportAccumulator.of(productList).toReport();
+
+        for (long rangeSize : new long[]{1, 3, 10, 1000}) {
+            parallelReportGenerator.rangeSize = rangeSize;
+
+            FinancialReport actual = parallelReportGenerator.accumulate().toReport();
+
+            assertEquals(expected.getTotalTurnover(), actual.getTotalTurnover());
+            assertEquals(expected.getTotalCost(), actual.getTotalCost());
+            assertSame(expected.getHighestMarginProduct(), actual.getHighestMarginProduct());
+            assertSame(expected.getLowestMarginProduct(), actual.getLowestMarginProduct());
+            assertSame(expected.getMostSoldProduct(), actual.getMostSoldProduct());
+            assertSame(expected.getLeastSoldProduct(), actual.getLeastSoldProduct());
+        }
+    }
+
+    @Test
+    public void accumulate_SplitsIdSpaceIntoRanges() {
+        parallelReportGenerator.rangeSize = 25;
+
+        parallelReportGenerator.accumulate();
+
+        verify(productRepository).findByIdBetween(1L, 25L);
+        verify(productRepository).findByIdBetween(26L, 50L);
+        verify(productRepository).findByIdBetween(51L, 75L);
+        verify(productRepository).findByIdBetween(76L, 100L);
+    }
+
+    @Test
+    public void accumulate_WithEmptyTable_ReturnsEmptyAccumulator() {
+        when(idRange.getMinId()).thenReturn(null);
+
+        assertTrue(parallelReportGenerator.accumulate().isEmpty());
+        verify(productRepository, never()).findByIdBetween(anyLong(), anyLong());
+    }
+}
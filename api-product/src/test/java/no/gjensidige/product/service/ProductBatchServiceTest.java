@@ -0,0 +1,167 @@
+package no.gjensidige.product.service;
+
+import jakarta.persistence.EntityManager;
+import no.gjensidige.product.dto.ProductDTO;
+import no.gjensidige.product.entity.Product;
+import no.gjensidige.product.event.ProductChangedEvent;
+import no.gjensidige.product.model.BatchItemResult;
+import no.gjensidige.product.model.BatchItemResult.Status;
+import no.gjensidige.product.repository.ProductRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.openMocks;
+
+public class ProductBatchServiceTest {
+
+    @InjectMocks
+    ProductBatchService productBatchService;
+
+    @Mock
+    ProductRepository productRepository;
+
+    @Mock
+    ProductService productService;
+
+    @Mock
+    TransactionTemplate transactionTemplate;
+
+    @Mock
+    EntityManager entityManager;
+
+    @Mock
+    ApplicationEventPublisher eventPublisher;
+
+    @Before
+    public void setUp() throws Exception {
+        openMocks(this);
+        productBatchService.chunkSize = 2;
+
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    @Test
+    public void createProducts_SavesEveryChunkInItsOwnTransaction() {
+        List<ProductDTO> inputProducts = Arrays.asList(dto(null, "A"), dto(null, "B"), null, dto(5L, "D"));
+
+        when(productService.convertToEntity(any(ProductDTO.class))).thenAnswer(invocation -> {
+            ProductDTO dto = invocation.getArgument(0);
+            Product p = new Product();
+            p.setId(dto.getId());
+            p.setProductName(dto.getProductName());
+            return p;
+        });
+        when(productRepository.saveAll(anyIterable())).thenAnswer(invocation -> {
+            long id = 100;
+            for (Product p : invocation.<Iterable<Product>>getArgument(0)) {
+                assertNull(p.getId());
+                p.setId(id++);
+            }
+            return null;
+        });
+
+        List<BatchItemResult> results = productBatchService.createProducts(inputProducts);
+
+        verify(transactionTemplate, times(2)).execute(any());
+        verify(entityManager, times(2)).flush();
+        verify(eventPublisher, times(3)).publishEvent(any(ProductChangedEvent.class));
+        assertEquals(4, results.size());
+        assertEquals(Status.CREATED, results.get(0).getStatus());
+        assertEquals(Long.valueOf(100L), results.get(0).getId());
+        assertEquals(Status.CREATED, results.get(1).getStatus());
+        assertEquals(Status.INVALID, results.get(2).getStatus());
+        assertEquals(Status.CREATED, results.get(3).getStatus());
+        assertEquals(3, results.get(3).getIndex());
+    }
+
+    @Test
+    public void updateProducts_ReportsMissingAndInvalidItems() {
+        Product existing = new Product();
+        existing.setId(1L);
+        List<ProductDTO> inputProducts = Arrays.asList(dto(1L, "A"), dto(2L, "B"), dto(null, "C"));
+
+        when(productRepository.findAllById(anyIterable())).thenReturn(Collections.singletonList(existing));
+
+        List<BatchItemResult> results = productBatchService.updateProducts(inputProducts);
+
+        verify(productService).mergeIntoEntity(inputProducts.get(0), existing);
+        verify(eventPublisher, times(1)).publishEvent(any(ProductChangedEvent.class));
+        assertEquals(Status.UPDATED, results.get(0).getStatus());
+        assertEquals(Status.NOT_FOUND, results.get(1).getStatus());
+        assertEquals(Status.INVALID, results.get(2).getStatus());
+    }
+
+    @Test
+    public void deleteProducts_DeletesFoundProductsInOneStatement() {
+        Product existing = new Product();
+        existing.setId(1L);
+        List<ProductDTO> inputProducts = Arrays.asList(dto(1L, null), dto(2L, null));
+
+        when(productRepository.findAllById(anyIterable())).thenReturn(Collections.singletonList(existing));
+
+        List<BatchItemResult> results = productBatchService.deleteProducts(inputProducts);
+
+        verify(productRepository).deleteAllInBatch(anyIterable());
+        assertEquals(Status.DELETED, results.get(0).getStatus());
+        assertEquals(Status.NOT_FOUND, results.get(1).getStatus());
+    }
+
+    @Test
+    public void createProducts_FailedChunk_MarksItsItemsFailed() {
+        List<ProductDTO> inputProducts = Arrays.asList(dto(null, "A"), dto(null, "B"), dto(null, "C"));
+
+        when(productService.convertToEntity(any(ProductDTO.class))).thenReturn(new Product());
+        when(productRepository.saveAll(anyIterable()))
+                .thenThrow(new IllegalStateException("constraint violated"))
+                .thenReturn(null);
+
+        List<BatchItemResult> results = productBatchService.createProducts(inputProducts);
+
+        assertEquals(Status.FAILED, results.get(0).getStatus());
+        assertEquals(ProductBatchService.CHUNK_FAILED, results.get(0).getMessage());
+        assertEquals(Status.FAILED, results.get(1).getStatus());
+        assertEquals(Status.CREATED, results.get(2).getStatus());
+        verify(eventPublisher, times(1)).publishEvent(any(ProductChangedEvent.class));
+    }
+
+    @Test
+    public void createProducts_FailingListener_KeepsCommittedItemsCreated() {
+        List<ProductDTO> inputProducts = Arrays.asList(dto(null, "A"), dto(null, "B"));
+
+        when(productService.convertToEntity(any(ProductDTO.class))).thenAnswer(invocation -> new Product());
+        doThrow(new ArithmeticException("long overflow")).when(eventPublisher).publishEvent(any(ProductChangedEvent.class));
+
+        List<BatchItemResult> results = productBatchService.createProducts(inputProducts);
+
+        assertEquals(Status.CREATED, results.get(0).getStatus());
+        assertEquals(Status.CREATED, results.get(1).getStatus());
+        // Every event is still offered to the listeners
+        verify(eventPublisher, times(2)).publishEvent(any(ProductChangedEvent.class));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void createProducts_WithNullList_ThrowsException() {
+        productBatchService.createProducts(null);
+        fail("Did not throw IllegalArgumentException");
+    }
+
+    private static ProductDTO dto(Long id, String name) {
+        ProductDTO dto = new ProductDTO();
+        dto.setId(id);
+        dto.setProductName(name);
+        dto.setNumberSold(1L);
+        return dto;
+    }
+}
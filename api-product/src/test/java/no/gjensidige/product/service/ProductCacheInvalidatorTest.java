@@ -0,0 +1,61 @@
+package no.gjensidige.product.service;
+
+import no.gjensidige.product.entity.Product;
+import no.gjensidige.product.event.ProductChangedEvent;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.openMocks;
+
+public class ProductCacheInvalidatorTest {
+
+    @InjectMocks
+    ProductCacheInvalidator productCacheInvalidator;
+
+    @Mock
+    CacheManager cacheManager;
+
+    @Mock
+    Cache cache;
+
+    @Before
+    public void setUp() throws Exception {
+        openMocks(this);
+        when(cacheManager.getCache(ProductService.PRODUCT_CACHE)).thenReturn(cache);
+    }
+
+    @Test
+    public void onProductChanged_Saved_EvictsProduct() {
+        productCacheInvalidator.onProductChanged(ProductChangedEvent.saved(product(1L)));
+
+        verify(cache).evictIfPresent(1L);
+    }
+
+    @Test
+    public void onProductChanged_Deleted_EvictsProduct() {
+        productCacheInvalidator.onProductChanged(ProductChangedEvent.deleted(product(2L)));
+
+        verify(cache).evictIfPresent(2L);
+    }
+
+    @Test
+    public void onProductChanged_WithoutId_DoesNothing() {
+        productCacheInvalidator.onProductChanged(ProductChangedEvent.saved(new Product()));
+
+        verify(cache, never()).evictIfPresent(any());
+    }
+
+    private static Product product(Long id) {
+        Product product = new Product();
+        product.setId(id);
+        return product;
+    }
+}
@@ -0,0 +1,97 @@
+package no.gjensidige.product.service;
+
+import jakarta.persistence.EntityManager;
+import no.gjensidige.product.entity.Product;
+import no.gjensidige.product.model.ExportFormat;
+import no.gjensidige.product.repository.ProductRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.openMocks;
+
+public class ProductExportServiceTest {
+
+    @InjectMocks
+    ProductExportService productExportService;
+
+    @Mock
+    ProductRepository productRepository;
+
+    @Mock
+    EntityManager entityManager;
+
+    @Spy
+    ObjectMapper objectMapper = JsonMapper.builder().build();
+
+    List<Product> productList;
+
+    @Before
+    public void setUp() throws Exception {
+        openMocks(this);
+
+        productList = new ArrayList<>();
+        for (long id = 1; id <= 3; id++) {
+            Product p = new Product();
+            p.setId(id);
+            p.setProductName("Product " + id);
+            p.setCategory("Hardware");
+            p.setNumberSold(100 * id);
+            p.setUnitPrice(BigDecimal.valueOf(10.5));
+            p.setUnitCost(BigDecimal.valueOf(2.0));
+            productList.add(p);
+        }
+        productList.get(1).setProductName("Seagate \"Baracuda\", 500GB");
+
+        when(productRepository.streamAllByOrderByIdAsc()).thenAnswer(invocation -> productList.stream());
+    }
+
+    @Test
+    public void exportProducts_Ndjson_WritesOneProductPerLineAndDetaches() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        productExportService.exportProducts(ExportFormat.NDJSON, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            assertEquals(productList.get(i).getId(), objectMapper.readValue(lines[i], Product.class).getId());
+        }
+        productList.forEach(p -> verify(entityManager).detach(p));
+    }
+
+    @Test
+    public void exportProducts_Csv_WritesHeaderAndEscapedRows() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        productExportService.exportProducts(ExportFormat.CSV, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(4, lines.length);
+        assertEquals("id,productName,category,imageLink,unitCost,unitPrice,numberSold", lines[0]);
+        assertEquals("1,Product 1,Hardware,,2.00,10.50,100", lines[1]);
+        assertEquals("2,\"Seagate \"\"Baracuda\"\", 500GB\",Hardware,,2.00,10.50,200", lines[2]);
+        verify(entityManager, times(3)).detach(any(Product.class));
+    }
+
+    @Test
+    public void exportProducts_EmptyTable_WritesNothing() throws Exception {
+        productList.clear();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        productExportService.exportProducts(ExportFormat.NDJSON, out);
+
+        assertEquals(0, out.size());
+    }
+}
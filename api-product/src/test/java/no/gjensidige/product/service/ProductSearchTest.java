@@ -0,0 +1,151 @@
+package no.gjensidige.product.service;
+
+import no.gjensidige.product.dto.ProductDTO;
+import no.gjensidige.product.entity.Product;
+import no.gjensidige.product.metrics.JdbcStatistics;
+import no.gjensidige.product.model.ProductFilter;
+import no.gjensidige.product.model.ProductPage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Runs the product search against the seeded in-memory database. Every test searches its
+ * own category or name prefix, so the products of other tests do not match. The probe size
+ * is 2, so small searches already take both plans.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = {"product.jdbc-metrics.enabled=true", "product.query-budget.action=REJECT", "product.search.probe-size=2"})
+public class ProductSearchTest {
+
+    @Autowired
+    ProductService productService;
+
+    @Autowired
+    JdbcStatistics jdbcStatistics;
+
+    String category;
+
+    @BeforeEach
+    public void setUp() {
+        category = "Search " + UUID.randomUUID();
+    }
+
+    @Test
+    public void searchProducts_AppliesEveryCriterion() {
+        Product match = create("Hus 1", 100.0, 40.0, 50L);
+        create("Hus 2", 100.0, 40.0, 5L);
+        create("Hus 3", 300.0, 40.0, 50L);
+        create("Hus 4", 100.0, 90.0, 50L);
+        create("Bil 1", 100.0, 40.0, 50L);
+
+        ProductFilter filter = filter();
+        filter.setNamePrefix("Hus");
+        filter.setMinPrice(BigDecimal.valueOf(50));
+        filter.setMaxPrice(BigDecimal.valueOf(200));
+        filter.setMaxCost(BigDecimal.valueOf(40));
+        filter.setMinNumberSold(10L);
+
+        assertEquals(Arrays.asList(match.getId()), ids(productService.searchProducts(filter, null, 10)));
+    }
+
+    @Test
+    public void searchProducts_RangesIncludeTheirBounds() {
+        Product low = create("Low", 10.0, 5.0, 0L);
+        Product high = create("High", 20.0, 15.0, 0L);
+        create("Above", 20.01, 15.0, 0L);
+
+        ProductFilter filter = filter();
+        filter.setMinPrice(BigDecimal.valueOf(10));
+        filter.setMaxPrice(BigDecimal.valueOf(20));
+        filter.setMinCost(BigDecimal.valueOf(5));
+
+        assertEquals(Arrays.asList(low.getId(), high.getId()), ids(productService.searchProducts(filter, null, 10)));
+    }
+
+    @Test
+    public void searchProducts_NamePrefixIsMatchedLiterally() {
+        Product literal = create("50%_off", 1.0, 1.0, 0L);
+        create("50 off", 1.0, 1.0, 0L);
+        create("500_off", 1.0, 1.0, 0L);
+
+        ProductFilter filter = filter();
+        filter.setNamePrefix("50%_");
+
+        assertEquals(Arrays.asList(literal.getId()), ids(productService.searchProducts(filter, null, 10)));
+    }
+
+    @Test
+    public void searchProducts_PagesInIdOrderWithOneSelectPerPage() {
+        List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            expected.add(create("Paged " + i, 1.0, 1.0, i).getId());
+        }
+        ProductFilter filter = filter();
+        filter.setMinNumberSold(1L);
+
+        List<Long> actual = new ArrayList<>();
+        ProductPage[] page = new ProductPage[1];
+        assertEquals(1, jdbcStatistics.count(() -> page[0] = productService.searchProducts(filter, null, 3)).getStatements());
+        actual.addAll(ids(page[0]));
+        assertEquals(1, jdbcStatistics.count(() -> page[0] = productService.searchProducts(filter, page[0].getNextToken(), 3)).getStatements());
+        actual.addAll(ids(page[0]));
+
+        assertEquals(expected.subList(1, 5), actual);
+        assertNull(page[0].getNextToken());
+    }
+
+    @Test
+    public void searchProducts_WithoutCategory_ProbesThenPages() {
+        String prefix = category + " ";
+        List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            expected.add(create(prefix + i, 1.0, 1.0, 0L).getId());
+        }
+        ProductFilter filter = new ProductFilter();
+        filter.setNamePrefix(prefix);
+        filter.setMaxPrice(BigDecimal.ONE);
+
+        // 3 matches are more than the probe size, the first page walks the primary key
+        ProductPage[] first = new ProductPage[1];
+        assertEquals(2, jdbcStatistics.count(() -> first[0] = productService.searchProducts(filter, null, 2)).getStatements());
+        // 1 match after the first page, the second page reads the name index
+        ProductPage[] second = new ProductPage[1];
+        assertEquals(2, jdbcStatistics.count(() -> second[0] = productService.searchProducts(filter, first[0].getNextToken(), 2)).getStatements());
+
+        assertEquals(expected.subList(0, 2), ids(first[0]));
+        assertEquals(expected.subList(2, 3), ids(second[0]));
+        assertNull(second[0].getNextToken());
+    }
+
+    private ProductFilter filter() {
+        ProductFilter filter = new ProductFilter();
+        filter.setCategory(category);
+        return filter;
+    }
+
+    private Product create(String name, double unitPrice, double unitCost, long numberSold) {
+        ProductDTO productDTO = new ProductDTO();
+        productDTO.setCategory(category);
+        productDTO.setProductName(name);
+        productDTO.setUnitPrice(BigDecimal.valueOf(unitPrice));
+        productDTO.setUnitCost(BigDecimal.valueOf(unitCost));
+        productDTO.setNumberSold(numberSold);
+        return productService.createProduct(productDTO);
+    }
+
+    private static List<Long> ids(ProductPage page) {
+        return page.getItems().stream().map(Product::getId).collect(Collectors.toList());
+    }
+}
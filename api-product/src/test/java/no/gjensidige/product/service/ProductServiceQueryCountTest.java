@@ -0,0 +1,108 @@
+package no.gjensidige.product.service;
+
+import no.gjensidige.product.dto.ProductDTO;
+import no.gjensidige.product.entity.Product;
+import no.gjensidige.product.exception.ProductNotFoundException;
+import no.gjensidige.product.exception.ProductVersionMismatchException;
+import no.gjensidige.product.metrics.JdbcStatistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Pins the number of JDBC statements of the product operations against the seeded
+ * in-memory database, budget violations fail the statement instead of being logged.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = {"product.jdbc-metrics.enabled=true", "product.query-budget.action=REJECT"})
+public class ProductServiceQueryCountTest {
+
+    @Autowired
+    ProductService productService;
+
+    @Autowired
+    JdbcStatistics jdbcStatistics;
+
+    @Test
+    public void getProduct_IsOneSelect_ThenCached() {
+        Product created = productService.createProduct(productDTO("Cached"));
+
+        assertStatements(1, () -> productService.getProduct(created.getId()));
+        assertStatements(0, () -> productService.getProduct(created.getId()));
+    }
+
+    @Test
+    public void updateProduct_IsSelectAndUpdate() {
+        Product created = productService.createProduct(productDTO("Updated"));
+        ProductDTO changes = new ProductDTO();
+        changes.setUnitPrice(BigDecimal.valueOf(99.0));
+
+        assertStatements(2, () -> productService.updateProduct(created.getId(), changes));
+    }
+
+    @Test
+    public void patchProduct_IsOneUpdate() {
+        Product created = productService.createProduct(productDTO("Patched"));
+        productService.getProduct(created.getId());
+        ProductDTO changes = new ProductDTO();
+        changes.setUnitPrice(BigDecimal.valueOf(99.5));
+        changes.setNumberSold(42L);
+
+        Product[] patched = new Product[1];
+        assertStatements(1, () -> patched[0] = productService.patchProduct(created.getId(), changes, Collections.singleton(created.getVersion())));
+
+        assertEquals(9950L, patched[0].getUnitPriceMinor());
+        assertEquals(42L, patched[0].getNumberSold());
+        assertEquals(100L, patched[0].getUnitCostMinor());
+        assertEquals("Patched", patched[0].getProductName());
+        assertEquals(created.getVersion() + 1, patched[0].getVersion());
+        // The cached product was evicted by the change event
+        assertEquals(9950L, productService.getProduct(created.getId()).getUnitPriceMinor());
+    }
+
+    @Test
+    public void patchProduct_WithStaleVersion_IsUpdateAndSelect() {
+        Product created = productService.createProduct(productDTO("Stale"));
+        ProductDTO changes = new ProductDTO();
+        changes.setCategory("Other");
+
+        assertStatements(2, () -> assertThrows(ProductVersionMismatchException.class,
+                () -> productService.patchProduct(created.getId(), changes, Collections.singleton(created.getVersion() + 1))));
+        assertEquals("Test", productService.getProduct(created.getId()).getCategory());
+    }
+
+    @Test
+    public void patchProduct_WithUnknownId_ThrowsNotFound() {
+        ProductDTO changes = new ProductDTO();
+        changes.setCategory("Other");
+
+        assertThrows(ProductNotFoundException.class, () -> productService.patchProduct(Long.MAX_VALUE, changes, null));
+    }
+
+    @Test
+    public void deleteProduct_IsSelectAndDelete() {
+        Product created = productService.createProduct(productDTO("Deleted"));
+
+        assertStatements(2, () -> productService.deleteProduct(created.getId()));
+    }
+
+    private void assertStatements(long expected, Runnable action) {
+        assertEquals(expected, jdbcStatistics.count(action).getStatements());
+    }
+
+    private static ProductDTO productDTO(String name) {
+        ProductDTO productDTO = new ProductDTO();
+        productDTO.setCategory("Test");
+        productDTO.setProductName(name);
+        productDTO.setNumberSold(10L);
+        productDTO.setUnitPrice(BigDecimal.valueOf(2.0));
+        productDTO.setUnitCost(BigDecimal.valueOf(1.0));
+        return productDTO;
+    }
+}
@@ -2,15 +2,26 @@ package no.gjensidige.product.service;
 
 import no.gjensidige.product.dto.ProductDTO;
 import no.gjensidige.product.entity.Product;
+import no.gjensidige.product.event.ProductChangedEvent;
+import no.gjensidige.product.exception.InvalidPageTokenException;
 import no.gjensidige.product.exception.ProductNotFoundException;
+import no.gjensidige.product.exception.ProductVersionMismatchException;
+import no.gjensidige.product.mapper.ProductMapper;
+import no.gjensidige.product.model.ProductPage;
 import no.gjensidige.product.repository.ProductRepository;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
-import org.modelmapper.ModelMapper;
-
-import java.math.BigInteger;
+import org.mockito.Spy;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
 import java.util.*;
 
 import static org.junit.Assert.*;
@@ -21,20 +32,25 @@ import static org.mockito.MockitoAnnotations.openMocks;
 
 public class ProductServiceTest {
 
-    public ModelMapper mm = new ModelMapper();
-
     @InjectMocks
     ProductService productService;
 
     @Mock
     ProductRepository productRepository;
 
+    @Spy
+    ProductMapper productMapper = new ProductMapper();
+
+    @Mock
+    ApplicationEventPublisher eventPublisher;
+
     @Mock
-    ModelMapper modelMapper;
+    TransactionTemplate transactionTemplate;
 
     @Before
     public void setUp() throws Exception {
         openMocks(this);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
     }
 
     @Test
@@ -42,18 +58,25 @@ public class ProductServiceTest {
         ProductDTO inputProductDTO = new ProductDTO();
         inputProductDTO.setCategory("Hardware");
         inputProductDTO.setProductName("Seagate Baracuda 500GB");
-        inputProductDTO.setNumbersold(BigInteger.valueOf(200));
-        inputProductDTO.setUnitPrice(55.50);
+        inputProductDTO.setNumberSold(200L);
+        inputProductDTO.setUnitPrice(BigDecimal.valueOf(55.50));
 
-        Product expectedProduct = mm.map(inputProductDTO, Product.class);
+        Product expectedProduct = productMapper.toEntity(inputProductDTO);
 
-        when(modelMapper.map(inputProductDTO, Product.class)).thenReturn(expectedProduct);
         when(productRepository.save(any(Product.class))).thenReturn(expectedProduct);
 
         // Should return the Product of the dto
         Product actualProduct = productService.createProduct(inputProductDTO);
 
-        verify(productRepository).save(actualProduct);
+        ArgumentCaptor<Product> savedProduct = ArgumentCaptor.forClass(Product.class);
+        verify(productRepository).save(savedProduct.capture());
+        verify(eventPublisher).publishEvent(any(ProductChangedEvent.class));
+
+        assertNull(savedProduct.getValue().getId());
+        assertEquals("Hardware", savedProduct.getValue().getCategory());
+        assertEquals("Seagate Baracuda 500GB", savedProduct.getValue().getProductName());
+        assertEquals(200L, savedProduct.getValue().getNumberSold());
+        assertEquals(5550L, savedProduct.getValue().getUnitPriceMinor());
 
         assertNotNull(actualProduct);
         assertEquals(expectedProduct.getId(), actualProduct.getId());
@@ -69,36 +92,68 @@ public class ProductServiceTest {
         existingProduct.setId(id);
         existingProduct.setCategory("Hardware");
         existingProduct.setProductName("Seagate Baracuda 500GB");
-        existingProduct.setNumberSold(BigInteger.valueOf(200));
-        existingProduct.setUnitPrice(55.50);
+        existingProduct.setNumberSold(200L);
+        existingProduct.setUnitPrice(BigDecimal.valueOf(55.50));
 
         ProductDTO inputProductDTO = new ProductDTO();
         inputProductDTO.setId(id);
         inputProductDTO.setCategory("Hardware 2.0");
         inputProductDTO.setProductName("Seagate Baracuda 500GB");
-        inputProductDTO.setNumbersold(BigInteger.valueOf(300));
-        inputProductDTO.setUnitPrice(65.50);
-
-        // Mock mapping of dto to existing product
-        mm.map(inputProductDTO, existingProduct);
+        inputProductDTO.setNumberSold(300L);
+        inputProductDTO.setUnitPrice(BigDecimal.valueOf(65.50));
 
         // If mapping is done correctly, the updated product should have the new fields
-        Product expectedProduct = mm.map(inputProductDTO, Product.class);
+        Product expectedProduct = productMapper.toEntity(inputProductDTO);
 
         when(productRepository.findById(id)).thenReturn(Optional.of(existingProduct));
-        when(modelMapper.map(inputProductDTO, Product.class)).thenReturn(expectedProduct);
         when(productRepository.save(any(Product.class))).thenReturn(existingProduct);
 
         Product actualProduct = productService.updateProduct(id, inputProductDTO);
 
+        ArgumentCaptor<Product> savedProduct = ArgumentCaptor.forClass(Product.class);
         verify(productRepository).findById(id);
-        verify(productRepository).save(actualProduct);
+        verify(productRepository).save(savedProduct.capture());
+
+        // The managed entity is updated in place with the fields of the dto
+        assertSame(existingProduct, savedProduct.getValue());
+        assertEquals(id, savedProduct.getValue().getId());
+        assertEquals(expectedProduct.getCategory(), savedProduct.getValue().getCategory());
+        assertEquals(expectedProduct.getProductName(), savedProduct.getValue().getProductName());
+        assertEquals(expectedProduct.getNumberSold(), savedProduct.getValue().getNumberSold());
+        assertEquals(expectedProduct.getUnitPriceMinor(), savedProduct.getValue().getUnitPriceMinor());
 
         assertNotNull(actualProduct);
         assertEquals(expectedProduct.getCategory(), actualProduct.getCategory());
         assertEquals(expectedProduct.getNumberSold(), actualProduct.getNumberSold());
     }
 
+    @Test
+    public void updateProduct_WithPartialDTO_KeepsFieldsNotSent(){
+        Long id = 1L;
+
+        Product existingProduct = new Product();
+        existingProduct.setId(id);
+        existingProduct.setCategory("Hardware");
+        existingProduct.setProductName("Seagate Baracuda 500GB");
+        existingProduct.setNumberSold(200L);
+        existingProduct.setUnitPrice(BigDecimal.valueOf(55.50));
+
+        ProductDTO inputProductDTO = new ProductDTO();
+        inputProductDTO.setId(99L);
+        inputProductDTO.setUnitPrice(BigDecimal.valueOf(65.50));
+
+        when(productRepository.findById(id)).thenReturn(Optional.of(existingProduct));
+        when(productRepository.save(any(Product.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Product actualProduct = productService.updateProduct(id, inputProductDTO);
+
+        assertEquals(id, actualProduct.getId());
+        assertEquals(6550, actualProduct.getUnitPriceMinor());
+        assertEquals("Hardware", actualProduct.getCategory());
+        assertEquals("Seagate Baracuda 500GB", actualProduct.getProductName());
+        assertEquals(200L, actualProduct.getNumberSold());
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void updateProduct_WithNullDTO_ThrowsException(){
         productService.updateProduct(1L, null);
@@ -119,6 +174,33 @@ public class ProductServiceTest {
         fail("Did not throw ProductNotFoundException");
     }
 
+    @Test
+    public void updateProduct_WithStaleVersion_ThrowsException(){
+        Product p = new Product();
+        p.setId(1L);
+        p.setVersion(3);
+        when(productRepository.findById(anyLong())).thenReturn(Optional.of(p));
+
+        try {
+            productService.updateProduct(1L, new ProductDTO(), Collections.singleton(2L));
+            fail("Did not throw ProductVersionMismatchException");
+        } catch (ProductVersionMismatchException e) {
+            verify(productRepository, never()).save(any(Product.class));
+            verify(eventPublisher, never()).publishEvent(any());
+        }
+    }
+
+    @Test(expected = ProductVersionMismatchException.class)
+    public void deleteProduct_WhenConcurrentlyChanged_ThrowsException(){
+        Product p = new Product();
+        p.setId(1L);
+        p.setVersion(3);
+        when(productRepository.findById(anyLong())).thenReturn(Optional.of(p));
+        doThrow(new ObjectOptimisticLockingFailureException(Product.class, 1L)).when(productRepository).delete(p);
+
+        productService.deleteProduct(1L, Collections.singleton(3L));
+    }
+
     @Test
     public void getAllProducts() {
 
@@ -142,6 +224,53 @@ public class ProductServiceTest {
 
     }
 
+    @Test
+    public void getProductPage_FirstPage_ReturnsNextToken() {
+        List<Product> productList = products(1L, 2L, 3L);
+        when(productRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(3))).thenReturn(productList);
+
+        ProductPage page = productService.getProductPage(null, 2, null);
+
+        assertEquals(2, page.getItems().size());
+        assertNotNull(page.getNextToken());
+
+        when(productRepository.findByIdGreaterThanOrderByIdAsc(2L, Limit.of(3))).thenReturn(products(3L));
+
+        ProductPage nextPage = productService.getProductPage(page.getNextToken(), 2, null);
+
+        verify(productRepository).findByIdGreaterThanOrderByIdAsc(2L, Limit.of(3));
+        assertEquals(Long.valueOf(3L), nextPage.getItems().get(0).getId());
+        assertNull(nextPage.getNextToken());
+    }
+
+    @Test
+    public void getProductPage_WithCategory_FiltersOnCategory() {
+        when(productRepository.findByCategoryAndIdGreaterThanOrderByIdAsc("Hardware", 0L, Limit.of(11))).thenReturn(products(4L, 9L));
+
+        ProductPage page = productService.getProductPage("", 10, "Hardware");
+
+        verify(productRepository, never()).findByIdGreaterThanOrderByIdAsc(anyLong(), any(Limit.class));
+        assertEquals(2, page.getItems().size());
+        assertNull(page.getNextToken());
+    }
+
+    @Test
+    public void getProductPage_ClampsPageSize() {
+        when(productRepository.findByIdGreaterThanOrderByIdAsc(anyLong(), any(Limit.class))).thenReturn(new ArrayList<>());
+
+        productService.getProductPage(null, 0, null);
+        productService.getProductPage(null, 1_000_000, null);
+
+        verify(productRepository).findByIdGreaterThanOrderByIdAsc(0L, Limit.of(2));
+        verify(productRepository).findByIdGreaterThanOrderByIdAsc(0L, Limit.of(ProductService.MAX_PAGE_SIZE + 1));
+    }
+
+    @Test(expected = InvalidPageTokenException.class)
+    public void getProductPage_WithInvalidToken_ThrowsException() {
+        productService.getProductPage("not a token", 10, null);
+        fail("Did not throw InvalidPageTokenException");
+    }
+
     @Test
     public void getProduct() {
         Product p = new Product();
@@ -165,6 +294,7 @@ public class ProductServiceTest {
 
         Product product = productService.deleteProduct(1l);
         verify(productRepository).delete(p);
+        verify(eventPublisher).publishEvent(any(ProductChangedEvent.class));
 
         assertEquals(p,product);
     }
@@ -187,11 +317,14 @@ public class ProductServiceTest {
         Product product = new Product();
         product.setCategory("Hardware");
         product.setProductName("Seagate Baracuda 500GB");
-        product.setNumberSold(BigInteger.valueOf(200));
-        product.setUnitPrice(55.50);
+        product.setNumberSold(200L);
+        product.setUnitPrice(BigDecimal.valueOf(55.50));
 
-        when(modelMapper.map(product, ProductDTO.class)).thenReturn(mm.map(product,ProductDTO.class));
         ProductDTO productDTO = productService.convertToDTO(product);
+
+        assertEquals(product.getProductName(),productDTO.getProductName());
+        assertEquals(Long.valueOf(product.getNumberSold()), productDTO.getNumberSold());
+        assertEquals(product.getUnitPrice(),productDTO.getUnitPrice());
     }
 
     @Test
@@ -200,15 +333,24 @@ public class ProductServiceTest {
         ProductDTO productDTO = new ProductDTO();
         productDTO.setCategory("Hardware");
         productDTO.setProductName("Seagate Baracuda 500GB");
-        productDTO.setNumbersold(BigInteger.valueOf(200));
-        productDTO.setUnitPrice(55.50);
+        productDTO.setNumberSold(200L);
+        productDTO.setUnitPrice(BigDecimal.valueOf(55.50));
 
-        when(modelMapper.map(productDTO,Product.class)).thenReturn(mm.map(productDTO,Product.class));
         Product product = productService.convertToEntity(productDTO);
 
         assertEquals(product.getProductName(),productDTO.getProductName());
-        assertEquals(product.getNumberSold(),productDTO.getNumberSold());
+        assertEquals(Long.valueOf(product.getNumberSold()), productDTO.getNumberSold());
         assertEquals(product.getCategory(),productDTO.getCategory());
 
     }
-}
\ No newline at end of file
+
+    private static List<Product> products(Long... ids) {
+        List<Product> productList = new ArrayList<>();
+        for (Long id : ids) {
+            Product p = new Product();
+            p.setId(id);
+            productList.add(p);
+        }
+        return productList;
+    }
+}
@@ -0,0 +1,199 @@
+package no.gjensidige.product.service;
+
+import no.gjensidige.product.entity.Product;
+import no.gjensidige.product.event.ProductChangedEvent;
+import no.gjensidige.product.model.FinancialReport;
+import no.gjensidige.product.model.MarginBucket;
+import no.gjensidige.product.model.ProductAnalytics;
+import no.gjensidige.product.model.RankingMetric;
+import no.gjensidige.product.repository.ProductRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.data.domain.Limit;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.openMocks;
+
+public class ProductSnapshotTest {
+
+    @InjectMocks
+    ProductSnapshot productSnapshot;
+
+    @Mock
+    ProductRepository productRepository;
+
+    @Before
+    public void setUp() throws Exception {
+        openMocks(this);
+    }
+
+    @Test
+    public void summarize_MatchesReportAccumulator() {
+        Random random = new Random(7);
+        List<Product> productList = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            productList.add(product(i + 1L, random.nextInt(50), random.nextInt(200), random.nextInt(200)));
+        }
+        // Rows are kept in id order whatever the order they arrive in
+        List<Product> shuffled = new ArrayList<>(productList);
+        Collections.shuffle(shuffled, random);
+
+        FiguresAccumulator summary = ProductSnapshot.of(shuffled).summarize();
+        FinancialReport expected = ReportAccumulator.of(productList).toReport();
+
+        assertEquals(5000, summary.getCount());
+        assertEquals(expected.getTotalTurnoverMinor(), summary.getTotalTurnoverMinor());
+        assertEquals(expected.getTotalCostMinor(), summary.getTotalCostMinor());
+        assertEquals(expected.getHighestMarginProduct().getId().longValue(), summary.getHighestMarginId());
+        assertEquals(expected.getLowestMarginProduct().getId().longValue(), summary.getLowestMarginId());
+        assertEquals(expected.getMostSoldProduct().getId().longValue(), summary.getMostSoldId());
+        assertEquals(expected.getLeastSoldProduct().getId().longValue(), summary.getLeastSoldId());
+    }
+
+    @Test
+    public void onProductChanged_KeepsColumnsUpToDate() {
+        ProductSnapshot snapshot = ProductSnapshot.of(Arrays.asList(product(1L, 10, 5.0, 1.0), product(2L, 20, 5.0, 1.0)));
+
+        snapshot.onProductChanged(ProductChangedEvent.saved(product(3L, 1, 100.0, 1.0)));
+        snapshot.onProductChanged(ProductChangedEvent.saved(product(1L, 1000, 5.0, 1.0)));
+        snapshot.onProductChanged(ProductChangedEvent.deleted(product(2L, 20, 5.0, 1.0)));
+
+        FiguresAccumulator summary = snapshot.summarize();
+
+        assertEquals(2, summary.getCount());
+        assertEquals(1001, summary.getUnitsSold());
+        assertEquals(500_000 + 10_000, summary.getTotalTurnoverMinor());
+        assertEquals(1L, summary.getMostSoldId());
+        assertEquals(3L, summary.getLeastSoldId());
+        assertEquals(2, snapshot.size());
+    }
+
+    @Test
+    public void onProductChanged_IgnoresEventsOlderThanTheRow() {
+        ProductSnapshot snapshot = ProductSnapshot.of(Arrays.asList(product(1L, 10, 5.0, 1.0), product(2L, 20, 5.0, 1.0)));
+
+        snapshot.onProductChanged(ProductChangedEvent.saved(version(product(1L, 1000, 5.0, 1.0), 2)));
+        snapshot.onProductChanged(ProductChangedEvent.saved(version(product(1L, 1, 5.0, 1.0), 1)));
+        snapshot.onProductChanged(ProductChangedEvent.deleted(version(product(1L, 1, 5.0, 1.0), 1)));
+        // A save of a deleted product arriving after its delete does not bring it back
+        snapshot.onProductChanged(ProductChangedEvent.deleted(version(product(2L, 20, 5.0, 1.0), 3)));
+        snapshot.onProductChanged(ProductChangedEvent.saved(version(product(2L, 30, 5.0, 1.0), 3)));
+
+        FiguresAccumulator summary = snapshot.summarize();
+
+        assertEquals(1, summary.getCount());
+        assertEquals(1000, summary.getUnitsSold());
+        assertEquals(1, snapshot.size());
+    }
+
+    @Test
+    public void onProductChanged_ManyWrites_GrowsAndCompacts() {
+        ProductSnapshot snapshot = ProductSnapshot.of(Collections.emptyList());
+
+        for (long id = 1; id <= 10_000; id++) {
+            snapshot.onProductChanged(ProductChangedEvent.saved(product(id, 1, 2.0, 1.0)));
+            if (id % 2 == 0) {
+                snapshot.onProductChanged(ProductChangedEvent.deleted(product(id - 1, 1, 2.0, 1.0)));
+            }
+        }
+
+        assertEquals(5000, snapshot.size());
+        assertEquals(1_000_000, snapshot.summarize().getTotalTurnoverMinor());
+        assertTrue(snapshot.offHeapBytes() < 10_000L * 41);
+    }
+
+    @Test
+    public void summarize_LoadsFromRepositoryOnceInPages() {
+        when(productRepository.findFiguresByIdGreaterThanOrderByIdAsc(eq(Long.MIN_VALUE), any(Limit.class)))
+                .thenReturn(Arrays.asList(
+                        new ProductRepository.ProductFigures(1L, 200L, 100L, 10L, 0L),
+                        new ProductRepository.ProductFigures(2L, 0L, 0L, 0L, 0L)));
+
+        productSnapshot.summarize();
+        FiguresAccumulator summary = productSnapshot.summarize();
+
+        verify(productRepository, times(1)).findFiguresByIdGreaterThanOrderByIdAsc(any(), any());
+        assertEquals(2, summary.getCount());
+        assertEquals(2000, summary.getTotalTurnoverMinor());
+        assertEquals(2L, summary.getLeastSoldId());
+    }
+
+    @Test
+    public void onProductChanged_BeforeLoad_IsIgnored() {
+        productSnapshot.onProductChanged(ProductChangedEvent.saved(product(9L, 1, 1.0, 1.0)));
+
+        assertEquals(0, productSnapshot.size());
+    }
+
+    @Test
+    public void analyze_AndMarginHistogram() {
+        ProductSnapshot snapshot = ProductSnapshot.of(Arrays.asList(
+                product(1L, 10, 3.0, 1.0), product(2L, 10, 2.0, 1.0), product(3L, 30, 2.0, 1.0)));
+
+        ProductAnalytics analytics = snapshot.analyze();
+        assertEquals(3, analytics.getProductCount());
+        assertEquals(50, analytics.getUnitsSold());
+        assertEquals(new BigDecimal("110.00"), analytics.getTotalTurnover());
+        assertEquals(new BigDecimal("60.00"), analytics.getTotalMargin());
+        assertEquals(new BigDecimal("2.20"), analytics.getAverageUnitPrice());
+
+        List<MarginBucket> histogram = snapshot.marginHistogram(2);
+        assertEquals(2, histogram.size());
+        assertEquals(new BigDecimal("10.00"), histogram.get(0).getFrom());
+        assertEquals(1, histogram.get(0).getCount());
+        assertEquals(new BigDecimal("30.00"), histogram.get(1).getTo());
+        assertEquals(2, histogram.get(1).getCount());
+    }
+
+    @Test
+    public void rank_MatchesSortedProducts() {
+        Random random = new Random(5);
+        List<Product> productList = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            productList.add(product(i + 1L, random.nextInt(50), random.nextInt(200), random.nextInt(200)));
+        }
+        ProductSnapshot snapshot = ProductSnapshot.of(productList);
+        ReportService reportService = new ReportService();
+
+        Comparator<Product> byMargin = Comparator.comparingLong(reportService::getProductMargin);
+        Comparator<Product> byId = Comparator.comparing(Product::getId);
+        ProductSnapshot.Ranking ranking = snapshot.rank(RankingMetric.MARGIN, 20);
+
+        assertArrayEquals(ids(productList, byMargin.reversed().thenComparing(byId), 20), ranking.getTopIds());
+        assertArrayEquals(ids(productList, byMargin.thenComparing(byId), 20), ranking.getBottomIds());
+
+        Comparator<Product> bySold = Comparator.comparingLong(Product::getNumberSold);
+        ranking = snapshot.rank(RankingMetric.UNITS_SOLD, 5);
+
+        assertArrayEquals(ids(productList, bySold.reversed().thenComparing(byId), 5), ranking.getTopIds());
+        assertArrayEquals(ids(productList, bySold.thenComparing(byId), 5), ranking.getBottomIds());
+    }
+
+    private static long[] ids(List<Product> products, Comparator<Product> order, int k) {
+        return products.stream().sorted(order).limit(k).mapToLong(Product::getId).toArray();
+    }
+
+    private static Product version(Product product, long version) {
+        product.setVersion(version);
+        return product;
+    }
+
+    private static Product product(Long id, long numberSold, double unitPrice, double unitCost) {
+        Product p = new Product();
+        p.setId(id);
+        p.setNumberSold(numberSold);
+        p.setUnitPrice(BigDecimal.valueOf(unitPrice));
+        p.setUnitCost(BigDecimal.valueOf(unitCost));
+        return p;
+    }
+}
@@ -0,0 +1,105 @@
+package no.gjensidige.product.service;
+
+import no.gjensidige.product.entity.Product;
+import no.gjensidige.product.model.FinancialReport;
+import no.gjensidige.product.repository.ProductRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.data.domain.Limit;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.openMocks;
+
+public class ReactiveProductServiceTest {
+
+    @InjectMocks
+    ReactiveProductService reactiveProductService;
+
+    @Mock
+    ProductRepository productRepository;
+
+    List<Product> productList;
+
+    @Before
+    public void setUp() throws Exception {
+        openMocks(this);
+        reactiveProductService.pageSize = 2;
+
+        productList = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Product p = new Product();
+            p.setId(i + 1L);
+            p.setCategory(i % 2 == 0 ? "Hardware" : "Software");
+            p.setNumberSold(200L * (i + 1));
+            p.setUnitPrice(BigDecimal.valueOf(55.50 + (i * 10)));
+            p.setUnitCost(BigDecimal.valueOf(10.50 + (i * 10)));
+            productList.add(p);
+        }
+
+        when(productRepository.findByIdGreaterThanOrderByIdAsc(anyLong(), any(Limit.class))).thenAnswer(invocation -> {
+            long afterId = invocation.getArgument(0);
+            int max = ((Limit) invocation.getArgument(1)).max();
+            return productList.stream().filter(p -> p.getId() > afterId).limit(max).collect(Collectors.toList());
+        });
+    }
+
+    @Test
+    public void streamProducts_ConcatenatesKeysetPages() {
+        List<Product> products = reactiveProductService.streamProducts(null).collectList().block();
+
+        assertEquals(productList, products);
+        verify(productRepository).findByIdGreaterThanOrderByIdAsc(0L, Limit.of(2));
+        verify(productRepository).findByIdGreaterThanOrderByIdAsc(2L, Limit.of(2));
+        verify(productRepository).findByIdGreaterThanOrderByIdAsc(4L, Limit.of(2));
+    }
+
+    @Test
+    public void streamProducts_FetchesOnlyWhatIsRequested() {
+        List<Product> products = reactiveProductService.streamProducts(null).take(1).collectList().block();
+
+        assertEquals(1, products.size());
+        verify(productRepository, never()).findByIdGreaterThanOrderByIdAsc(eq(4L), any(Limit.class));
+    }
+
+    @Test
+    public void streamProducts_WithCategory_UsesCategoryQuery() {
+        when(productRepository.findByCategoryAndIdGreaterThanOrderByIdAsc(eq("Software"), anyLong(), any(Limit.class)))
+                .thenReturn(Collections.singletonList(productList.get(1)));
+
+        List<Product> products = reactiveProductService.streamProducts("Software").collectList().block();
+
+        assertEquals(Collections.singletonList(productList.get(1)), products);
+    }
+
+    @Test
+    public void generateFinancialReport_MatchesAccumulator() {
+        FinancialReport expected = ReportAccumulator.of(productList).toReport();
+
+        FinancialReport actual = reactiveProductService.generateFinancialReport().block();
+
+        assertEquals(expected.getTotalTurnover(), actual.getTotalTurnover());
+        assertEquals(expected.getTotalCost(), actual.getTotalCost());
+        assertSame(expected.getMostSoldProduct(), actual.getMostSoldProduct());
+        assertSame(expected.getLowestMarginProduct(), actual.getLowestMarginProduct());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void generateFinancialReport_WithEmptyProductList_ThrowsException() {
+        productList = Collections.emptyList();
+
+        reactiveProductService.generateFinancialReport().block();
+        fail("Did not throw NoSuchElementException");
+    }
+}
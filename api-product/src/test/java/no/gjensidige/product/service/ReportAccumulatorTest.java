@@ -0,0 +1,106 @@
+package no.gjensidige.product.service;
+
+import no.gjensidige.product.entity.Product;
+import no.gjensidige.product.model.FinancialReport;
+import no.gjensidige.product.model.MinorUnits;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ReportAccumulatorTest {
+
+    ReportService reportService = new ReportService();
+
+    @Test
+    public void toReport_MatchesSeparatePasses() {
+        Random random = new Random(42);
+        List<Product> productList = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Product p = new Product();
+            p.setId((long) i);
+            p.setNumberSold(random.nextInt(500));
+            p.setUnitPrice(BigDecimal.valueOf(random.nextInt(200)));
+            p.setUnitCost(BigDecimal.valueOf(random.nextInt(200)));
+            productList.add(p);
+        }
+
+        FinancialReport report = ReportAccumulator.of(productList).toReport();
+
+        assertEquals(productList.stream().mapToLong(reportService::getProductTurnover).sum(), report.getTotalTurnoverMinor());
+        assertEquals(productList.stream().mapToLong(reportService::getProductCost).sum(), report.getTotalCostMinor());
+        assertEquals(report.getTotalTurnoverMinor() - report.getTotalCostMinor(), report.getTotalMarginMinor());
+        assertSame(Collections.max(productList, Comparator.comparingLong(reportService::getProductMargin)), report.getHighestMarginProduct());
+        assertSame(Collections.min(productList, Comparator.comparingLong(reportService::getProductMargin)), report.getLowestMarginProduct());
+        assertSame(Collections.max(productList, Comparator.comparing(Product::getNumberSold)), report.getMostSoldProduct());
+        assertSame(Collections.min(productList, Comparator.comparing(Product::getNumberSold)), report.getLeastSoldProduct());
+    }
+
+    @Test
+    public void accept_WithMissingFigures_ContributesNothing() {
+        Product empty = new Product();
+        Product sold = new Product();
+        sold.setNumberSold(10L);
+        sold.setUnitPrice(BigDecimal.valueOf(2.0));
+        sold.setUnitCost(BigDecimal.valueOf(1.0));
+
+        FinancialReport report = ReportAccumulator.of(Arrays.asList(empty, sold)).toReport();
+
+        assertEquals(2000, report.getTotalTurnoverMinor());
+        assertEquals(1000, report.getTotalCostMinor());
+        assertSame(empty, report.getLeastSoldProduct());
+        assertSame(sold, report.getMostSoldProduct());
+    }
+
+    @Test
+    public void merge_MatchesSinglePass() {
+        Random random = new Random(3);
+        List<Product> productList = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Product p = new Product();
+            p.setNumberSold(random.nextInt(5));
+            p.setUnitPriceMinor(random.nextInt(1_000_000));
+            p.setUnitCostMinor(10);
+            productList.add(p);
+        }
+
+        FinancialReport expected = ReportAccumulator.of(productList).toReport();
+
+        ReportAccumulator merged = new ReportAccumulator();
+        for (int from = 0; from < productList.size(); from += 13) {
+            merged.merge(ReportAccumulator.of(productList.subList(from, Math.min(from + 13, productList.size()))));
+        }
+        FinancialReport actual = merged.toReport();
+
+        assertEquals(productList.size(), merged.getCount());
+        assertEquals(expected.getTotalTurnoverMinor(), actual.getTotalTurnoverMinor());
+        assertEquals(expected.getTotalCostMinor(), actual.getTotalCostMinor());
+        assertSame(expected.getHighestMarginProduct(), actual.getHighestMarginProduct());
+        assertSame(expected.getLowestMarginProduct(), actual.getLowestMarginProduct());
+        assertSame(expected.getMostSoldProduct(), actual.getMostSoldProduct());
+        assertSame(expected.getLeastSoldProduct(), actual.getLeastSoldProduct());
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void accept_WhenTotalOverflows_Throws() {
+        ReportAccumulator accumulator = new ReportAccumulator();
+        for (int i = 0; i < 10; i++) {
+            Product p = new Product();
+            p.setNumberSold(MinorUnits.MAX_COUNT);
+            p.setUnitPriceMinor(MinorUnits.MAX_AMOUNT);
+            accumulator.accept(p);
+        }
+    }
+
+    @Test
+    public void isEmpty() {
+        ReportAccumulator accumulator = new ReportAccumulator();
+        assertTrue(accumulator.isEmpty());
+
+        accumulator.accept(new Product());
+        assertFalse(accumulator.isEmpty());
+        assertEquals(1, accumulator.getCount());
+    }
+}
@@ -0,0 +1,150 @@
+package no.gjensidige.product.service;
+
+import no.gjensidige.product.entity.Product;
+import no.gjensidige.product.event.ProductChangedEvent;
+import no.gjensidige.product.model.FinancialReport;
+import no.gjensidige.product.repository.ProductRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.openMocks;
+
+public class ReportAggregatorTest {
+
+    @InjectMocks
+    ReportAggregator reportAggregator;
+
+    @Mock
+    ProductRepository productRepository;
+
+    List<Product> productList;
+
+    @Before
+    public void setUp() throws Exception {
+        openMocks(this);
+
+        productList = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            productList.add(product(i + 1L, 200L * (i + 1), 55.50 + (i * 10), 10.50 + (i * 10)));
+        }
+    }
+
+    @Test
+    public void createReport_BootstrapsFromRepositoryOnce() {
+        when(productRepository.findAll()).thenReturn(productList);
+
+        FinancialReport first = reportAggregator.createReport();
+        FinancialReport second = reportAggregator.createReport();
+
+        verify(productRepository, times(1)).findAll();
+        assertEquals(expectedTurnover(productList), first.getTotalTurnoverMinor());
+        assertEquals(first.getTotalTurnover(), second.getTotalTurnover());
+        assertEquals(Long.valueOf(3L), first.getMostSoldProduct().getId());
+        assertEquals(Long.valueOf(1L), first.getLeastSoldProduct().getId());
+        assertEquals(Long.valueOf(3L), first.getHighestMarginProduct().getId());
+        assertEquals(Long.valueOf(1L), first.getLowestMarginProduct().getId());
+    }
+
+    @Test
+    public void onProductChanged_IgnoresEventsOlderThanTheAppliedVersion() {
+        when(productRepository.findAll()).thenReturn(productList);
+        reportAggregator.createReport();
+
+        Product newer = product(1L, 5000L, 55.50, 10.50);
+        newer.setVersion(2);
+        Product older = product(1L, 1L, 55.50, 10.50);
+        older.setVersion(1);
+        reportAggregator.onProductChanged(ProductChangedEvent.saved(newer));
+        reportAggregator.onProductChanged(ProductChangedEvent.saved(older));
+        reportAggregator.onProductChanged(ProductChangedEvent.deleted(older));
+
+        List<Product> expectedProducts = Arrays.asList(newer, productList.get(1), productList.get(2));
+        FinancialReport report = reportAggregator.createReport();
+
+        assertEquals(expectedTurnover(expectedProducts), report.getTotalTurnoverMinor());
+        assertEquals(Long.valueOf(1L), report.getMostSoldProduct().getId());
+        assertEquals(2L, report.getMostSoldProduct().getVersion());
+    }
+
+    @Test
+    public void onProductChanged_KeepsAggregatesUpToDate() {
+        when(productRepository.findAll()).thenReturn(productList);
+        reportAggregator.createReport();
+
+        Product created = product(4L, 10_000L, 20.0, 1.0);
+        reportAggregator.onProductChanged(ProductChangedEvent.saved(created));
+
+        Product updated = product(1L, 1L, 55.50, 10.50);
+        reportAggregator.onProductChanged(ProductChangedEvent.saved(updated));
+
+        reportAggregator.onProductChanged(ProductChangedEvent.deleted(productList.get(1)));
+
+        List<Product> expectedProducts = Arrays.asList(updated, productList.get(2), created);
+        FinancialReport report = reportAggregator.createReport();
+
+        assertEquals(expectedTurnover(expectedProducts), report.getTotalTurnoverMinor());
+        assertEquals(expectedCost(expectedProducts), report.getTotalCostMinor());
+        assertEquals(report.getTotalTurnoverMinor() - report.getTotalCostMinor(), report.getTotalMarginMinor());
+        assertEquals(Long.valueOf(4L), report.getMostSoldProduct().getId());
+        assertEquals(Long.valueOf(4L), report.getHighestMarginProduct().getId());
+        assertEquals(Long.valueOf(1L), report.getLeastSoldProduct().getId());
+        assertEquals(Long.valueOf(1L), report.getLowestMarginProduct().getId());
+    }
+
+    @Test
+    public void createReport_TiesResolveToLowestId() {
+        productList = Arrays.asList(product(7L, 100L, 2.0, 1.0), product(3L, 100L, 2.0, 1.0), product(5L, 100L, 2.0, 1.0));
+        when(productRepository.findAll()).thenReturn(productList);
+
+        FinancialReport report = reportAggregator.createReport();
+
+        assertEquals(Long.valueOf(3L), report.getHighestMarginProduct().getId());
+        assertEquals(Long.valueOf(3L), report.getLowestMarginProduct().getId());
+        assertEquals(Long.valueOf(3L), report.getMostSoldProduct().getId());
+        assertEquals(Long.valueOf(3L), report.getLeastSoldProduct().getId());
+    }
+
+    @Test
+    public void onProductChanged_BeforeBootstrap_IsIgnored() {
+        reportAggregator.onProductChanged(ProductChangedEvent.saved(product(9L, 1L, 1.0, 1.0)));
+        when(productRepository.findAll()).thenReturn(productList);
+
+        FinancialReport report = reportAggregator.createReport();
+
+        assertEquals(expectedTurnover(productList), report.getTotalTurnoverMinor());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void createReport_WithEmptyProductList_ThrowsException() {
+        reportAggregator.createReport();
+        fail("Did not throw NoSuchElementException");
+    }
+
+    private static Product product(Long id, long numberSold, double unitPrice, double unitCost) {
+        Product p = new Product();
+        p.setId(id);
+        p.setProductName("Product " + id);
+        p.setNumberSold(numberSold);
+        p.setUnitPrice(BigDecimal.valueOf(unitPrice));
+        p.setUnitCost(BigDecimal.valueOf(unitCost));
+        return p;
+    }
+
+    private static long expectedTurnover(List<Product> products) {
+        return products.stream().mapToLong(p -> p.getNumberSold() * p.getUnitPriceMinor()).sum();
+    }
+
+    private static long expectedCost(List<Product> products) {
+        return products.stream().mapToLong(p -> p.getNumberSold() * p.getUnitCostMinor()).sum();
+    }
+}
@@ -0,0 +1,92 @@
+package no.gjensidige.product.service;
+
+import no.gjensidige.product.entity.Product;
+import no.gjensidige.product.event.ProductChangedEvent;
+import no.gjensidige.product.model.FinancialReport;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+public class ReportCacheTest {
+
+    ReportCache reportCache;
+
+    List<Runnable> pendingRefreshes;
+
+    int generated;
+
+    Supplier<FinancialReport> generator = () -> {
+        generated++;
+        return new FinancialReport();
+    };
+
+    @Before
+    public void setUp() {
+        reportCache = new ReportCache();
+        pendingRefreshes = new ArrayList<>();
+        reportCache.executor = pendingRefreshes::add;
+    }
+
+    @Test
+    public void get_WithoutChanges_ReturnsCachedReport() {
+        FinancialReport first = reportCache.get(generator);
+        FinancialReport second = reportCache.get(generator);
+
+        assertSame(first, second);
+        assertEquals(first.getCreatedTime(), second.getCreatedTime());
+        assertEquals(1, generated);
+        assertTrue(pendingRefreshes.isEmpty());
+    }
+
+    @Test
+    public void get_AfterChange_ServesStaleReportWhileRefreshing() {
+        FinancialReport first = reportCache.get(generator);
+        reportCache.onProductChanged(ProductChangedEvent.saved(new Product()));
+
+        assertSame(first, reportCache.get(generator));
+        assertSame(first, reportCache.get(generator));
+
+        // Only one refresh is scheduled however many readers see the stale report
+        assertEquals(1, pendingRefreshes.size());
+        pendingRefreshes.get(0).run();
+
+        FinancialReport refreshed = reportCache.get(generator);
+        assertNotSame(first, refreshed);
+        assertEquals(2, generated);
+        assertSame(refreshed, reportCache.get(generator));
+        assertEquals(1, pendingRefreshes.size());
+    }
+
+    @Test
+    public void get_ChangeDuringRefresh_SchedulesAnotherRefresh() {
+        reportCache.get(generator);
+        reportCache.onProductChanged(ProductChangedEvent.saved(new Product()));
+        reportCache.get(() -> {
+            // A write that lands while the refresh is computing
+            reportCache.onProductChanged(ProductChangedEvent.deleted(new Product()));
+            return new FinancialReport();
+        });
+
+        pendingRefreshes.get(0).run();
+
+        reportCache.get(generator);
+        assertEquals(2, pendingRefreshes.size());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void get_AfterFailedRefresh_ComputesOnCallerThread() {
+        reportCache.get(generator);
+        reportCache.onProductChanged(ProductChangedEvent.deleted(new Product()));
+        reportCache.get(() -> { throw new NoSuchElementException("Product list is empty"); });
+        pendingRefreshes.get(0).run();
+
+        reportCache.get(() -> { throw new NoSuchElementException("Product list is empty"); });
+        fail("Did not throw NoSuchElementException");
+    }
+}
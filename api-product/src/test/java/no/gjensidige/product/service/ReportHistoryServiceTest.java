@@ -0,0 +1,169 @@
+package no.gjensidige.product.service;
+
+import no.gjensidige.product.entity.Product;
+import no.gjensidige.product.entity.ReportSnapshot;
+import no.gjensidige.product.exception.ReportSnapshotNotFoundException;
+import no.gjensidige.product.model.FinancialReport;
+import no.gjensidige.product.model.ReportDelta;
+import no.gjensidige.product.repository.ReportSnapshotRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.openMocks;
+
+public class ReportHistoryServiceTest {
+
+    @InjectMocks
+    ReportHistoryService reportHistoryService;
+
+    @Mock
+    ReportSnapshotRepository reportSnapshotRepository;
+
+    @Mock
+    ReportService reportService;
+
+    @Before
+    public void setUp() throws Exception {
+        openMocks(this);
+        when(reportSnapshotRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    public void record_StoresOnlyChangedFigures() {
+        when(reportSnapshotRepository.findFirstByCreatedTimeLessThanEqualOrderByCreatedTimeDescIdDesc(any())).thenReturn(Optional.empty());
+
+        reportHistoryService.record(report(1000, 400, 7L));
+        reportHistoryService.record(report(1000, 400, 7L));
+        reportHistoryService.record(report(1000, 400, 8L));
+
+        verify(reportSnapshotRepository, times(2)).save(any());
+        // The last stored snapshot is only looked up once
+        verify(reportSnapshotRepository, times(1)).findFirstByCreatedTimeLessThanEqualOrderByCreatedTimeDescIdDesc(any());
+    }
+
+    @Test
+    public void record_SameFiguresAsStoredBeforeRestart_IsSkipped() {
+        ReportSnapshot stored = ReportSnapshot.of(report(1000, 400, 7L));
+        when(reportSnapshotRepository.findFirstByCreatedTimeLessThanEqualOrderByCreatedTimeDescIdDesc(any())).thenReturn(Optional.of(stored));
+
+        reportHistoryService.record(report(1000, 400, 7L));
+
+        verify(reportSnapshotRepository, never()).save(any());
+    }
+
+    @Test
+    public void record_WhenStoringFails_DoesNotThrow() {
+        when(reportSnapshotRepository.findFirstByCreatedTimeLessThanEqualOrderByCreatedTimeDescIdDesc(any())).thenThrow(new IllegalStateException("down"));
+
+        reportHistoryService.record(report(1000, 400, 7L));
+    }
+
+    @Test
+    public void takeSnapshot_RecordsTheReportAndDeletesExpiredSnapshots() {
+        when(reportSnapshotRepository.findFirstByCreatedTimeLessThanEqualOrderByCreatedTimeDescIdDesc(any())).thenReturn(Optional.empty());
+        when(reportService.generateFinancialReport()).thenReturn(report(1000, 400, 7L));
+
+        Instant before = Instant.now();
+        reportHistoryService.takeSnapshot();
+
+        verify(reportSnapshotRepository).save(any());
+        verify(reportSnapshotRepository).deleteCreatedBefore(argThat(time ->
+                !time.toInstant().isAfter(Instant.now().minus(Duration.ofDays(400)))
+                        && !time.toInstant().isBefore(before.minus(Duration.ofDays(400)))));
+    }
+
+    @Test
+    public void takeSnapshot_AfterDeletingExpiredSnapshots_LooksUpTheLastStoredAgain() {
+        when(reportSnapshotRepository.findFirstByCreatedTimeLessThanEqualOrderByCreatedTimeDescIdDesc(any())).thenReturn(Optional.empty());
+        when(reportService.generateFinancialReport()).thenReturn(report(1000, 400, 7L));
+
+        reportHistoryService.takeSnapshot();
+        when(reportSnapshotRepository.deleteCreatedBefore(any())).thenReturn(1);
+        reportHistoryService.takeSnapshot();
+
+        // The only stored snapshot expired, the unchanged figures are stored again
+        verify(reportSnapshotRepository, times(2)).save(any());
+    }
+
+    @Test
+    public void takeSnapshot_EmptyCatalog_StoresNothing() {
+        when(reportService.generateFinancialReport()).thenThrow(new NoSuchElementException("Product list is empty"));
+
+        reportHistoryService.takeSnapshot();
+
+        verify(reportSnapshotRepository, never()).save(any());
+    }
+
+    @Test
+    public void getDelta_UsesStoredTotals() {
+        Instant now = Instant.now();
+        Instant weekAgo = now.minus(Duration.ofDays(7));
+        when(reportSnapshotRepository.findFirstByCreatedTimeLessThanEqualOrderByCreatedTimeDescIdDesc(Timestamp.from(weekAgo)))
+                .thenReturn(Optional.of(ReportSnapshot.of(report(1000, 400, 1L))));
+        when(reportSnapshotRepository.findFirstByCreatedTimeLessThanEqualOrderByCreatedTimeDescIdDesc(Timestamp.from(now)))
+                .thenReturn(Optional.of(ReportSnapshot.of(report(1500, 400, 2L))));
+
+        ReportDelta delta = reportHistoryService.getDelta(weekAgo, now);
+
+        assertEquals(new BigDecimal("5.00"), delta.getTurnoverChange());
+        assertEquals(0.5, delta.getTurnoverChangeRatio(), 1e-9);
+        assertEquals(new BigDecimal("0.00"), delta.getCostChange());
+        assertEquals(new BigDecimal("5.00"), delta.getMarginChange());
+        assertEquals(Long.valueOf(2L), delta.getTo().getMostSoldProductId());
+    }
+
+    @Test
+    public void getWeeklyDeltas_StopsAtFirstSnapshot() {
+        Instant now = Instant.now();
+        ReportSnapshot current = ReportSnapshot.of(report(3000, 1000, 1L));
+        ReportSnapshot lastWeek = ReportSnapshot.of(report(2000, 1000, 1L));
+        when(reportSnapshotRepository.findFirstByCreatedTimeLessThanEqualOrderByCreatedTimeDescIdDesc(any())).thenReturn(Optional.empty());
+        when(reportSnapshotRepository.findFirstByCreatedTimeLessThanEqualOrderByCreatedTimeDescIdDesc(Timestamp.from(now)))
+                .thenReturn(Optional.of(current));
+        when(reportSnapshotRepository.findFirstByCreatedTimeLessThanEqualOrderByCreatedTimeDescIdDesc(Timestamp.from(now.minus(Duration.ofDays(7)))))
+                .thenReturn(Optional.of(lastWeek));
+
+        List<ReportDelta> deltas = reportHistoryService.getWeeklyDeltas(now, 4);
+
+        assertEquals(1, deltas.size());
+        assertSame(lastWeek, deltas.get(0).getFrom());
+        assertSame(current, deltas.get(0).getTo());
+    }
+
+    @Test(expected = ReportSnapshotNotFoundException.class)
+    public void getSnapshotAt_BeforeHistory_ThrowsException() {
+        when(reportSnapshotRepository.findFirstByCreatedTimeLessThanEqualOrderByCreatedTimeDescIdDesc(any())).thenReturn(Optional.empty());
+
+        reportHistoryService.getSnapshotAt(Instant.now());
+        fail("Did not throw ReportSnapshotNotFoundException");
+    }
+
+    private static FinancialReport report(long turnover, long cost, Long mostSoldId) {
+        Product product = new Product();
+        product.setId(mostSoldId);
+
+        FinancialReport report = new FinancialReport();
+        report.setTotalTurnoverMinor(turnover);
+        report.setTotalCostMinor(cost);
+        report.setTotalMarginMinor(turnover - cost);
+        report.setMostSoldProduct(product);
+        return report;
+    }
+}
@@ -1,18 +1,32 @@
 package no.gjensidige.product.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import no.gjensidige.product.entity.Product;
+import no.gjensidige.product.model.CategoryReport;
+import no.gjensidige.product.model.ProductRanking;
+import no.gjensidige.product.model.RankingMetric;
 import no.gjensidige.product.model.FinancialReport;
+import no.gjensidige.product.model.ReportMode;
 import no.gjensidige.product.repository.ProductRepository;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 
-import java.math.BigInteger;
+import java.math.BigDecimal;
 import java.util.*;
+import java.util.stream.Stream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.*;
@@ -27,6 +41,18 @@ public class ReportServiceTest {
     @Mock
     ProductRepository productRepository;
 
+    @Mock
+    ReportAggregator reportAggregator;
+
+    @Mock
+    ParallelReportGenerator parallelReportGenerator;
+
+    @Mock
+    ReportCache reportCache;
+
+    @Spy
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     @Before
     public void setUp() throws Exception {
         openMocks(this);
@@ -39,9 +65,9 @@ public class ReportServiceTest {
         for(int i = 0; i<uniqueNames.size(); i++) {
             Product p = new Product();
             p.setProductName(names.get(i));
-            p.setNumberSold(BigInteger.valueOf(200L * (i + 1)));
-            p.setUnitPrice(55.50 + (i * 10));
-            p.setUnitCost(10.50 + (i * 10));
+            p.setNumberSold(200L * (i + 1));
+            p.setUnitPrice(BigDecimal.valueOf(55.50 + (i * 10)));
+            p.setUnitCost(BigDecimal.valueOf(10.50 + (i * 10)));
             productList.add(p);
         }
     }
@@ -51,22 +77,22 @@ public class ReportServiceTest {
         Product leastSoldProduct = productList.get(0);
         Product mostSoldProduct = productList.get(2);
 
-        Double expectedTotalTurnover =
-                productList.stream().mapToDouble(p -> p.getNumberSold().doubleValue() * p.getUnitPrice()).sum();
+        long expectedTotalTurnover =
+                productList.stream().mapToLong(p -> p.getNumberSold() * p.getUnitPriceMinor()).sum();
 
-        Double expectedTotalCost =
-                productList.stream().mapToDouble(p -> p.getNumberSold().doubleValue() * p.getUnitCost()).sum();
+        long expectedTotalCost =
+                productList.stream().mapToLong(p -> p.getNumberSold() * p.getUnitCostMinor()).sum();
 
-        Double expectedTotalMargin = expectedTotalTurnover - expectedTotalCost;
+        long expectedTotalMargin = expectedTotalTurnover - expectedTotalCost;
 
         FinancialReport expectedReport = new FinancialReport();
         expectedReport.setHighestMarginProduct(mostSoldProduct);
         expectedReport.setLeastSoldProduct(leastSoldProduct);
         expectedReport.setMostSoldProduct(mostSoldProduct);
         expectedReport.setLowestMarginProduct(leastSoldProduct);
-        expectedReport.setTotalCost(expectedTotalCost);
-        expectedReport.setTotalMargin(expectedTotalMargin);
-        expectedReport.setTotalTurnover(expectedTotalTurnover);
+        expectedReport.setTotalCostMinor(expectedTotalCost);
+        expectedReport.setTotalMarginMinor(expectedTotalMargin);
+        expectedReport.setTotalTurnoverMinor(expectedTotalTurnover);
 
         when(productRepository.findAll()).thenReturn(productList);
 
@@ -74,11 +100,182 @@ public class ReportServiceTest {
 
         verify(productRepository).findAll();
 
-        assertEquals(expectedReport.getCreatedTime(), actualReport.getCreatedTime());
+        assertFalse(actualReport.getCreatedTime().before(expectedReport.getCreatedTime()));
         assertEquals(expectedReport.getHighestMarginProduct(), actualReport.getHighestMarginProduct());
         assertEquals(expectedReport.getLeastSoldProduct(), actualReport.getLeastSoldProduct());
     }
 
+    @Test
+    public void generateFinancialReport_RecordsFetchAndComputeBreakdown(){
+        when(productRepository.findAll()).thenReturn(productList);
+
+        reportService.generateFinancialReport();
+
+        assertEquals(1, meterRegistry.get("report.generation").tags("mode", "SCAN", "phase", "fetch").timer().count());
+        assertEquals(1, meterRegistry.get("report.generation").tags("mode", "SCAN", "phase", "compute").timer().count());
+        assertEquals(3.0, meterRegistry.get("report.products").tag("mode", "SCAN").summary().totalAmount(), 0);
+    }
+
+    @Test
+    public void generateFinancialReport_IncrementalMode_UsesAggregator(){
+        FinancialReport expectedReport = new FinancialReport();
+        reportService.reportMode = ReportMode.INCREMENTAL;
+
+        when(reportAggregator.createReport()).thenReturn(expectedReport);
+
+        FinancialReport actualReport = reportService.generateFinancialReport();
+
+        verify(reportAggregator).createReport();
+        verify(productRepository, never()).findAll();
+        assertEquals(expectedReport, actualReport);
+    }
+
+    @Test
+    public void generateFinancialReport_CacheEnabled_UsesCache(){
+        FinancialReport expectedReport = new FinancialReport();
+        reportService.cacheEnabled = true;
+
+        when(reportCache.get(any())).thenReturn(expectedReport);
+
+        FinancialReport actualReport = reportService.generateFinancialReport();
+
+        verify(reportCache).get(any());
+        verify(productRepository, never()).findAll();
+        assertSame(expectedReport, actualReport);
+    }
+
+    @Test
+    public void generateFinancialReport_ParallelMode_UsesGenerator(){
+        reportService.reportMode = ReportMode.PARALLEL;
+
+        when(parallelReportGenerator.accumulate()).thenReturn(ReportAccumulator.of(productList));
+
+        FinancialReport actualReport = reportService.generateFinancialReport();
+
+        verify(parallelReportGenerator).accumulate();
+        verify(productRepository, never()).findAll();
+        assertEquals(productList.get(2), actualReport.getMostSoldProduct());
+    }
+
+    @Test
+    public void generateFinancialReport_DatabaseMode_UsesAggregateQueries(){
+        reportService.reportMode = ReportMode.DATABASE;
+
+        ProductRepository.ReportTotals totals = mock(ProductRepository.ReportTotals.class);
+        when(totals.getTotalTurnover()).thenReturn(100_000L);
+        when(totals.getTotalCost()).thenReturn(40_000L);
+        when(totals.getProductCount()).thenReturn(3L);
+
+        when(productRepository.findReportTotals()).thenReturn(totals);
+        when(productRepository.findHighestMarginProduct()).thenReturn(Optional.of(productList.get(2)));
+        when(productRepository.findLowestMarginProduct()).thenReturn(Optional.of(productList.get(0)));
+        when(productRepository.findMostSoldProduct()).thenReturn(Optional.of(productList.get(2)));
+        when(productRepository.findLeastSoldProduct()).thenReturn(Optional.of(productList.get(0)));
+
+        FinancialReport actualReport = reportService.generateFinancialReport();
+
+        verify(productRepository, never()).findAll();
+        assertEquals(new BigDecimal("1000.00"), actualReport.getTotalTurnover());
+        assertEquals(new BigDecimal("400.00"), actualReport.getTotalCost());
+        assertEquals(new BigDecimal("600.00"), actualReport.getTotalMargin());
+        assertEquals(productList.get(2), actualReport.getHighestMarginProduct());
+        assertEquals(productList.get(0), actualReport.getLowestMarginProduct());
+        assertEquals(productList.get(2), actualReport.getMostSoldProduct());
+        assertEquals(productList.get(0), actualReport.getLeastSoldProduct());
+    }
+
+    @Test
+    public void generateFinancialReport_ColumnarMode_LoadsOnlyExtremeProducts(){
+        reportService.reportMode = ReportMode.COLUMNAR;
+        for (int i = 0; i < productList.size(); i++) {
+            productList.get(i).setId(i + 1L);
+        }
+        reportService.productSnapshot = ProductSnapshot.of(productList);
+
+        when(productRepository.findAllById(any())).thenReturn(Arrays.asList(productList.get(0), productList.get(2)));
+
+        FinancialReport actualReport = reportService.generateFinancialReport();
+        FinancialReport expectedReport = ReportAccumulator.of(productList).toReport();
+
+        verify(productRepository, never()).findAll();
+        assertEquals(expectedReport.getTotalTurnover(), actualReport.getTotalTurnover());
+        assertEquals(expectedReport.getTotalCost(), actualReport.getTotalCost());
+        assertEquals(productList.get(2), actualReport.getHighestMarginProduct());
+        assertEquals(productList.get(0), actualReport.getLowestMarginProduct());
+        assertEquals(productList.get(2), actualReport.getMostSoldProduct());
+        assertEquals(productList.get(0), actualReport.getLeastSoldProduct());
+    }
+
+    @Test
+    public void generateCategoryReports_ReducesEachCategoryOnce(){
+        for (int i = 0; i < productList.size(); i++) {
+            productList.get(i).setId(i + 1L);
+            productList.get(i).setCategory(i == 0 ? "Bil" : "Hus");
+        }
+        when(productRepository.streamCategoryFiguresByOrderByCategoryAscIdAsc()).thenReturn(productList.stream()
+                .map(p -> new ProductRepository.CategoryFigures(p.getId(), p.getCategory(), p.getUnitPriceMinor(), p.getUnitCostMinor(), p.getNumberSold())));
+        when(productRepository.findAllById(any())).thenReturn(productList);
+
+        List<CategoryReport> reports = reportService.generateCategoryReports();
+
+        verify(productRepository, never()).findAll();
+        assertEquals(2, reports.size());
+
+        CategoryReport bil = reports.get(0);
+        assertEquals("Bil", bil.getCategory());
+        assertEquals(reportService.getProductTurnover(productList.get(0)), bil.getTotalTurnoverMinor());
+        assertSame(productList.get(0), bil.getHighestMarginProduct());
+        assertSame(productList.get(0), bil.getLeastSoldProduct());
+
+        CategoryReport hus = reports.get(1);
+        FinancialReport expected = ReportAccumulator.of(productList.subList(1, 3)).toReport();
+        assertEquals("Hus", hus.getCategory());
+        assertEquals(expected.getTotalTurnoverMinor(), hus.getTotalTurnoverMinor());
+        assertEquals(expected.getTotalCostMinor(), hus.getTotalCostMinor());
+        assertEquals(expected.getTotalMarginMinor(), hus.getTotalMarginMinor());
+        assertSame(productList.get(2), hus.getHighestMarginProduct());
+        assertSame(productList.get(1), hus.getLowestMarginProduct());
+        assertSame(productList.get(2), hus.getMostSoldProduct());
+        assertSame(productList.get(1), hus.getLeastSoldProduct());
+    }
+
+    @Test
+    public void generateCategoryReports_WithEmptyTable_ReturnsNoCategories(){
+        when(productRepository.streamCategoryFiguresByOrderByCategoryAscIdAsc()).thenReturn(Stream.empty());
+
+        assertTrue(reportService.generateCategoryReports().isEmpty());
+        verify(productRepository, never()).findAllById(any());
+    }
+
+    @Test
+    public void generateRanking_LoadsRankedProductsInOrder(){
+        for (int i = 0; i < productList.size(); i++) {
+            productList.get(i).setId(i + 1L);
+        }
+        reportService.productSnapshot = ProductSnapshot.of(productList);
+
+        // The last product was deleted after the snapshot was read
+        when(productRepository.findAllById(any())).thenReturn(productList.subList(0, 2));
+
+        ProductRanking ranking = reportService.generateRanking(RankingMetric.TURNOVER, 2);
+
+        assertEquals(RankingMetric.TURNOVER, ranking.getMetric());
+        assertEquals(Collections.singletonList(productList.get(1)), ranking.getTop());
+        assertEquals(Arrays.asList(productList.get(0), productList.get(1)), ranking.getBottom());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void generateFinancialReport_DatabaseMode_WithEmptyTable_ThrowsException(){
+        reportService.reportMode = ReportMode.DATABASE;
+
+        ProductRepository.ReportTotals totals = mock(ProductRepository.ReportTotals.class);
+        when(totals.getProductCount()).thenReturn(0L);
+        when(productRepository.findReportTotals()).thenReturn(totals);
+
+        reportService.generateFinancialReport();
+        fail("Did not throw NoSuchElementException");
+    }
+
     @Test(expected = NoSuchElementException.class)
     public void generateFinancialReport_WithEmptyProductList_ThrowsException(){
         reportService.generateFinancialReport();
@@ -89,9 +286,9 @@ public class ReportServiceTest {
     public void getTotalTurnover(){
         Product product = productList.get(0);
 
-        Double expectedProductTurnover = product.getNumberSold().doubleValue() * product.getUnitPrice();
+        long expectedProductTurnover = product.getNumberSold() * product.getUnitPriceMinor();
 
-        Double actualProductTurnover = reportService.getProductTurnover(product);
+        long actualProductTurnover = reportService.getProductTurnover(product);
 
         assertEquals(expectedProductTurnover, actualProductTurnover);
     }
@@ -100,9 +297,9 @@ public class ReportServiceTest {
     public void getProductCost(){
         Product product = productList.get(0);
 
-        Double expectedProductCost = product.getNumberSold().doubleValue() * product.getUnitCost();
+        long expectedProductCost = product.getNumberSold() * product.getUnitCostMinor();
 
-        Double actualProductCost = reportService.getProductCost(product);
+        long actualProductCost = reportService.getProductCost(product);
 
         assertEquals(expectedProductCost, actualProductCost);
     }
@@ -111,12 +308,12 @@ public class ReportServiceTest {
     public void getProductMargin(){
         Product product = productList.get(0);
 
-        Double expectedProductTurnover = product.getNumberSold().doubleValue() * product.getUnitPrice();
-        Double expectedProductCost = product.getNumberSold().doubleValue() * product.getUnitCost();
+        long expectedProductTurnover = product.getNumberSold() * product.getUnitPriceMinor();
+        long expectedProductCost = product.getNumberSold() * product.getUnitCostMinor();
 
-        Double expectedProductMargin = expectedProductTurnover - expectedProductCost;
+        long expectedProductMargin = expectedProductTurnover - expectedProductCost;
 
-        Double actualProductMargin = reportService.getProductMargin(product);
+        long actualProductMargin = reportService.getProductMargin(product);
 
         assertEquals(expectedProductMargin, actualProductMargin);
     }
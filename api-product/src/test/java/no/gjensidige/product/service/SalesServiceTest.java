@@ -0,0 +1,178 @@
+package no.gjensidige.product.service;
+
+import no.gjensidige.product.dto.ProductDTO;
+import no.gjensidige.product.dto.SaleDTO;
+import no.gjensidige.product.entity.Product;
+import no.gjensidige.product.exception.InvalidSaleException;
+import no.gjensidige.product.metrics.JdbcStatistics;
+import no.gjensidige.product.model.MinorUnits;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.AopTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the sales buffer against the seeded in-memory database. The scheduled flush is
+ * pushed out of the way, the tests flush themselves.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = {"product.jdbc-metrics.enabled=true", "product.sales.flush-interval=1h"})
+public class SalesServiceTest {
+
+    @Autowired
+    SalesService salesService;
+
+    @Autowired
+    ProductService productService;
+
+    @Autowired
+    JdbcStatistics jdbcStatistics;
+
+    @BeforeEach
+    public void setUp() {
+        salesService.flush();
+    }
+
+    @Test
+    public void flush_CoalescesSalesIntoOneBatch() {
+        Product first = productService.createProduct(productDTO("First", 10));
+        Product second = productService.createProduct(productDTO("Second", 0));
+
+        salesService.recordSales(Arrays.asList(sale(first, 1), sale(second, 2), sale(first, 3)));
+        salesService.recordSales(Collections.singletonList(sale(first, 4)));
+        assertEquals(2, salesService.getPendingProducts());
+
+        // One batch of updates and one select of the updated products for the change events
+        assertEquals(2, jdbcStatistics.count(() -> assertEquals(2, salesService.flush())).getStatements());
+
+        assertEquals(0, salesService.getPendingProducts());
+        assertEquals(18L, productService.getProduct(first.getId()).getNumberSold());
+        assertEquals(first.getVersion() + 1, productService.getProduct(first.getId()).getVersion());
+        assertEquals(2L, productService.getProduct(second.getId()).getNumberSold());
+    }
+
+    @Test
+    public void flush_DropsUnknownAndOverflowingProducts() {
+        Product full = productService.createProduct(productDTO("Full", MinorUnits.MAX_COUNT - 1));
+        Product other = productService.createProduct(productDTO("Other", 0));
+
+        salesService.recordSales(Arrays.asList(sale(full, 2), new SaleDTO(Long.MAX_VALUE, 1L), sale(other, 5)));
+
+        assertEquals(1, salesService.flush());
+        assertEquals(0, salesService.getPendingProducts());
+        assertEquals(MinorUnits.MAX_COUNT - 1, productService.getProduct(full.getId()).getNumberSold());
+        assertEquals(5L, productService.getProduct(other.getId()).getNumberSold());
+    }
+
+    @Test
+    public void flush_WhenDatabaseFails_KeepsEveryChunkBuffered() {
+        // More products than one chunk holds, so the chunks after the failing one are kept too
+        List<SaleDTO> sales = new ArrayList<>();
+        for (long id = 1; id <= 1200; id++) {
+            sales.add(new SaleDTO(Long.MAX_VALUE - id, id));
+        }
+        salesService.recordSales(sales);
+
+        // The service is a metrics proxy, its target holds the fields
+        SalesService target = AopTestUtils.getTargetObject(salesService);
+        JdbcTemplate jdbcTemplate = target.jdbcTemplate;
+        JdbcTemplate failing = mock(JdbcTemplate.class);
+        when(failing.batchUpdate(anyString(), anyList())).thenThrow(new DataAccessResourceFailureException("Database down"));
+        target.jdbcTemplate = failing;
+        try {
+            assertThrows(DataAccessResourceFailureException.class, () -> salesService.flush());
+        } finally {
+            target.jdbcTemplate = jdbcTemplate;
+        }
+        assertEquals(1200, salesService.getPendingProducts());
+
+        // The products are unknown, so the retried sales are dropped
+        assertEquals(0, salesService.flush());
+        assertEquals(0, salesService.getPendingProducts());
+    }
+
+    @Test
+    public void flush_WhenListenerFails_DoesNotRequeueCommittedSales() {
+        Product product = productService.createProduct(productDTO("Listener", 0));
+        salesService.recordSales(Collections.singletonList(sale(product, 3)));
+
+        SalesService target = AopTestUtils.getTargetObject(salesService);
+        ApplicationEventPublisher eventPublisher = target.eventPublisher;
+        ApplicationEventPublisher failing = mock(ApplicationEventPublisher.class);
+        doThrow(new ArithmeticException("long overflow")).when(failing).publishEvent(any(Object.class));
+        target.eventPublisher = failing;
+        try {
+            assertEquals(1, salesService.flush());
+        } finally {
+            target.eventPublisher = eventPublisher;
+        }
+
+        assertEquals(0, salesService.getPendingProducts());
+        assertEquals(0, salesService.flush());
+        assertEquals(3L, productService.getProduct(product.getId()).getNumberSold());
+    }
+
+    @Test
+    public void recordSales_WithInvalidSale_BuffersNothing() {
+        Product product = productService.createProduct(productDTO("Invalid", 0));
+
+        assertThrows(InvalidSaleException.class, () -> salesService.recordSales(Arrays.asList(sale(product, 1), sale(product, 0))));
+        assertEquals(0, salesService.getPendingProducts());
+    }
+
+    @Test
+    public void recordSales_AddingUpOverTheBound_BuffersNothing() {
+        Product first = productService.createProduct(productDTO("Bound", 0));
+        Product second = productService.createProduct(productDTO("Unaffected", 0));
+
+        assertThrows(InvalidSaleException.class, () -> salesService.recordSales(Arrays.asList(
+                sale(second, 1), sale(first, MinorUnits.MAX_COUNT), sale(first, 1))));
+        assertEquals(0, salesService.getPendingProducts());
+    }
+
+    @Test
+    public void recordSales_BufferedOverTheBound_DropsOnlyTheOffendingSale() {
+        Product first = productService.createProduct(productDTO("Buffered", 0));
+        Product second = productService.createProduct(productDTO("Alongside", 0));
+
+        salesService.recordSales(Collections.singletonList(sale(first, MinorUnits.MAX_COUNT)));
+        salesService.recordSales(Arrays.asList(sale(first, 1), sale(second, 2)));
+
+        assertEquals(2, salesService.flush());
+        assertEquals(MinorUnits.MAX_COUNT, productService.getProduct(first.getId()).getNumberSold());
+        assertEquals(2L, productService.getProduct(second.getId()).getNumberSold());
+    }
+
+    private static SaleDTO sale(Product product, long quantity) {
+        return new SaleDTO(product.getId(), quantity);
+    }
+
+    private static ProductDTO productDTO(String name, long numberSold) {
+        ProductDTO productDTO = new ProductDTO();
+        productDTO.setCategory("Test");
+        productDTO.setProductName(name);
+        productDTO.setNumberSold(numberSold);
+        productDTO.setUnitPrice(BigDecimal.valueOf(2.0));
+        productDTO.setUnitCost(BigDecimal.valueOf(1.0));
+        return productDTO;
+    }
+}